@@ -0,0 +1,102 @@
+package de.vernideas.lib.stellargen.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.vernideas.lib.stellargen.SystemGenerator;
+import de.vernideas.space.data.Material;
+import de.vernideas.space.data.Planet;
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.VectorD3D;
+import de.vernideas.space.data.planetaryclass.PlanetaryClass;
+import de.vernideas.space.data.starclass.StarClass;
+import de.vernideas.space.data.starclass.StarClassHelper;
+
+/**
+ * Per-body checks and calculations the generators run inside their retry loops,
+ * measured against a fully generated system of the given spectral class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BodyBenchmark {
+	/** Power of two, for cheap wrap-around */
+	private static final int SAMPLES = 1024;
+
+	@Param({"O5", "B5", "A5", "F5", "G2", "K5", "M5", "L5"})
+	public String spectralClass;
+
+	private Star star;
+	private String declaration;
+	private final double[] radius = new double[SAMPLES];
+	private final double[] eccentricity = new double[SAMPLES];
+	private Planet[] bodies;
+	private Material[] materials;
+	private double[] masses;
+	private int next;
+
+	@Setup
+	public void setup() {
+		// Look for a system with at least one body to classify
+		long seed = 0x5eedL;
+		do {
+			star = SystemGenerator.star(spectralClass, seed ++, new VectorD3D());
+		} while( star.planets.isEmpty() && star.planetoids.isEmpty() );
+		declaration = star.starClass.fullDeclaration();
+
+		Random rnd = new Random(0x5eedL);
+		for( int i = 0; i < SAMPLES; ++ i ) {
+			radius[i] = star.innerPlanetLimit() * 0.5 + rnd.nextDouble() * star.outerPlanetLimit() * 1.2;
+			eccentricity[i] = Math.pow(rnd.nextDouble(), 4.0) * 0.8;
+		}
+
+		List<Planet> all = new ArrayList<Planet>(star.planets);
+		all.addAll(star.planetoids);
+		bodies = all.toArray(new Planet[all.size()]);
+		materials = new Material[bodies.length];
+		masses = new double[bodies.length];
+		for( int i = 0; i < bodies.length; ++ i ) {
+			materials[i] = new Material("", bodies[i].uncompressedDensity(), bodies[i].compressibility());
+			masses[i] = bodies[i].mass();
+		}
+	}
+
+	@Benchmark
+	public boolean orbitFree() {
+		int i = (next ++) & (SAMPLES - 1);
+		return star.orbitFree(radius[i], eccentricity[i]);
+	}
+
+	@Benchmark
+	public PlanetaryClass classify() {
+		return PlanetaryClass.classify(bodies[Math.floorMod(next ++, bodies.length)]);
+	}
+
+	@Benchmark
+	public StarClass parse() {
+		return StarClassHelper.parse(declaration);
+	}
+
+	@Benchmark
+	public double estimateCompressedDensity() {
+		int i = Math.floorMod(next ++, materials.length);
+		return materials[i].estimateCompressedDensity(masses[i]);
+	}
+}
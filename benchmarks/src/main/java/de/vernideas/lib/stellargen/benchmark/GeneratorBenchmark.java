@@ -0,0 +1,80 @@
+package de.vernideas.lib.stellargen.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.vernideas.lib.stellargen.PlanetGenerator;
+import de.vernideas.lib.stellargen.StarGenerator;
+import de.vernideas.lib.stellargen.SystemGenerator;
+import de.vernideas.space.data.Constant;
+import de.vernideas.space.data.Planet;
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.Universe;
+import de.vernideas.space.data.VectorD3D;
+
+/**
+ * Star, system and planet generation entry points. Every invocation uses a new seed,
+ * so the numbers include the retry loops at their natural rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+	@Param({"O5", "B5", "A5", "F5", "G2", "K5", "M5", "L5"})
+	public String spectralClass;
+
+	private Universe universe;
+	private Star star;
+	private long seed;
+	private double maxGasgiantMass;
+
+	@Setup
+	public void setup() {
+		universe = new Universe(0x5eedL);
+		star = StarGenerator.star(spectralClass, 0x5eedL, new VectorD3D());
+		seed = 1L;
+		maxGasgiantMass = Math.min(Constant.MAX_PLANETARY_MASS, star.mass() / 25.0);
+	}
+
+	@Benchmark
+	public Star star() {
+		return StarGenerator.star(universe, spectralClass, ++ seed);
+	}
+
+	@Benchmark
+	public Star system() {
+		return SystemGenerator.star(spectralClass, ++ seed, new VectorD3D());
+	}
+
+	@Benchmark
+	public Planet terrestialPlanet() {
+		star.seed(++ seed);
+		return PlanetGenerator.newTerrestialPlanet(star, null, Constant.MIN_TERRESTRIAL_MASS, Constant.MAX_TERRESTRIAL_MASS);
+	}
+
+	@Benchmark
+	public Planet gasgiant() {
+		star.seed(++ seed);
+		return PlanetGenerator.newGasgiant(star, null, Constant.MAX_TERRESTRIAL_MASS, maxGasgiantMass);
+	}
+
+	@Benchmark
+	public Planet planetoid() {
+		star.seed(++ seed);
+		return PlanetGenerator.newPlanetoid(star, Constant.MIN_TERRESTRIAL_MASS);
+	}
+}
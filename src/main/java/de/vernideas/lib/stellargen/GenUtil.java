@@ -1,6 +1,22 @@
 package de.vernideas.lib.stellargen;
 
+import java.util.function.Function;
+
+import de.vernideas.lib.stellargen.sampler.WeightedSampler;
+
 public final class GenUtil {
+	/** Prefix of the system properties replacing the weight tables, see {@link #weights} */
+	public static final String WEIGHTS_PROPERTY = "stellargen.";
+	
+	/**
+	 * Weight table <code>name</code>.txt from this package. Setting the system property
+	 * <code>stellargen.</code><i>name</i> to the path of another classpath resource replaces it;
+	 * this gets read once, when the generator using it gets loaded.
+	 */
+	static <T> WeightedSampler<T> weights(String name, Function<String, ? extends T> parser) {
+		return WeightedSampler.load(System.getProperty(WEIGHTS_PROPERTY + name, "/de/vernideas/lib/stellargen/" + name + ".txt"), parser);
+	}
+	
 	private static String roman[] = {"ↂ", "Mↂ", "ↁ", "Mↁ", "M","CM","D", "CD","C","XC","L","XL","X","IX","V","IV","I"};
 	private static int arab[] = {10000, 9000, 5000, 4000, 1000, 900, 500, 400, 100, 90, 50, 40, 10, 9, 5, 4, 1};
 	
@@ -62,4 +78,21 @@ public final class GenUtil {
 				+ (val3 - 2.0 * val2 + val) * minTangent + (val3 - val2) * maxTangent;
 	}
 
+	/** SplitMix64 finaliser; returns a well-mixed 64 bit hash of the value */
+	public static long mix64(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * Derive a child seed out of a parent seed and an index.
+	 * <p>
+	 * The result depends only on the two values, so children can be generated
+	 * in any order (or in parallel) and still come out the same.
+	 */
+	public static long deriveSeed(long seed, long index) {
+		return mix64(seed ^ mix64(index + 0x9e3779b97f4a7c15L));
+	}
+
 }
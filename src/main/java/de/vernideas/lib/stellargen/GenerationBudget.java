@@ -0,0 +1,149 @@
+package de.vernideas.lib.stellargen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+/**
+ * Limits on the work spent on a single planetary system: the number of attempts at generating
+ * planets, planetoids and moons, and the time since starting on the system.
+ * <p>
+ * Once the budget runs out, the generators stop trying to add more bodies; the system keeps
+ * what it got so far. The attempt limit keeps the results deterministic. The deadline doesn't:
+ * the same seed can give a smaller system on a slower or busier machine.
+ * <p>
+ * Set with {@link GenerationOptions#withBudget(GenerationBudget)}. Instances are immutable.
+ */
+@Accessors(fluent = true)
+public final class GenerationBudget {
+	/** No limits; the default */
+	public static final GenerationBudget UNLIMITED = new GenerationBudget(Long.MAX_VALUE, 0L);
+
+	/** Attempts per system */
+	@Getter private final long attempts;
+	/** Time per system in nanoseconds, 0 for no deadline */
+	@Getter private final long nanos;
+
+	private GenerationBudget(long attempts, long nanos) {
+		if( attempts < 0 || nanos < 0 ) {
+			throw new IllegalArgumentException("Negative budget: " + attempts + " attempts, " + nanos + " ns");
+		}
+		this.attempts = attempts;
+		this.nanos = nanos;
+	}
+
+	/** At most the given number of attempts per system, no deadline */
+	public static GenerationBudget attempts(long attempts) {
+		return new GenerationBudget(attempts, 0L);
+	}
+
+	/** At most the given time per system, no limit on attempts */
+	public static GenerationBudget deadline(long time, @NonNull TimeUnit unit) {
+		return new GenerationBudget(Long.MAX_VALUE, Math.max(unit.toNanos(time), 1L));
+	}
+
+	/** Same attempt limit, with the given deadline */
+	public GenerationBudget withDeadline(long time, @NonNull TimeUnit unit) {
+		return new GenerationBudget(attempts, Math.max(unit.toNanos(time), 1L));
+	}
+
+	/** Start spending this budget on a new system */
+	Tracker start() {
+		return new Tracker(this);
+	}
+
+	/** Budget left for one system; only used by the thread generating it */
+	static final class Tracker {
+		private final long deadline;
+		private final boolean timed;
+		private long attemptsLeft;
+		private boolean exhausted = false;
+		private long spent = 0L;
+		private long decorationStart = 0L;
+		/** Decorations put off until {@link #takeDeferred()}; null while decorating right away */
+		private List<Consumer<Tracker>> deferred = null;
+
+		private Tracker(GenerationBudget budget) {
+			this.timed = (budget.nanos > 0);
+			this.deadline = (timed ? System.nanoTime() + budget.nanos : 0L);
+			this.attemptsLeft = budget.attempts;
+		}
+
+		private Tracker(Tracker parent) {
+			this.timed = parent.timed;
+			this.deadline = parent.deadline;
+			this.attemptsLeft = Long.MAX_VALUE;
+			this.exhausted = parent.exhausted;
+		}
+
+		/**
+		 * Tracker with the same deadline for use by another thread. Only for budgets without an
+		 * attempt limit, since the attempts can't be shared.
+		 */
+		Tracker fork() {
+			if( attemptsLeft != Long.MAX_VALUE ) {
+				throw new IllegalStateException("Can't split an attempt limit between trackers");
+			}
+			return new Tracker(this);
+		}
+
+		/** Use up one attempt; false if there was nothing left for it */
+		boolean spend() {
+			if( exhausted ) {
+				return false;
+			}
+			if( attemptsLeft <= 0 || (timed && System.nanoTime() - deadline > 0) ) {
+				exhausted = true;
+				return false;
+			}
+			if( attemptsLeft != Long.MAX_VALUE ) {
+				-- attemptsLeft;
+			}
+			++ spent;
+			return true;
+		}
+
+		/** A body got accepted; everything spent from now on goes into its moons */
+		void decorating() {
+			decorationStart = spent;
+		}
+
+		/** Attempts spent since the last {@link #decorating()} */
+		long sinceDecoration() {
+			return spent - decorationStart;
+		}
+
+		/** From now on, put off decorating the accepted bodies until {@link #takeDeferred()} */
+		void deferDecoration() {
+			if( null == deferred ) {
+				deferred = new ArrayList<Consumer<Tracker>>();
+			}
+		}
+
+		/** Decorate an accepted body (material, diameter, moons ...) with this tracker, now or later */
+		void decorate(Consumer<Tracker> decoration) {
+			if( null == deferred ) {
+				decoration.accept(this);
+			} else {
+				deferred.add(decoration);
+			}
+		}
+
+		/** The decorations put off so far, in order; decorate right away again from now on */
+		List<Consumer<Tracker>> takeDeferred() {
+			List<Consumer<Tracker>> result = (null != deferred ? deferred : Collections.<Consumer<Tracker>>emptyList());
+			deferred = null;
+			return result;
+		}
+
+		boolean exhausted() {
+			return exhausted;
+		}
+	}
+}
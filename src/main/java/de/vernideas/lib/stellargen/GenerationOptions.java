@@ -0,0 +1,69 @@
+package de.vernideas.lib.stellargen;
+
+import de.vernideas.lib.stellargen.sampler.Truncated;
+import de.vernideas.space.data.Belt;
+import de.vernideas.space.data.StellarObject;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * How {@link SystemGenerator} builds planetary systems. Passed along with each call, so callers
+ * with different needs don't get in each other's way. Instances are immutable.
+ */
+@ToString
+@Accessors(fluent = true)
+public final class GenerationOptions {
+	/** Unlimited budget, planetoid lists, randomisers kept, current sampling */
+	public static final GenerationOptions DEFAULT = new GenerationOptions(GenerationBudget.UNLIMITED, false, false, false);
+
+	/** Work limit per planetary system */
+	@Getter private final GenerationBudget budget;
+	/**
+	 * If true, systems get their planetoids as a {@link Belt} instead of in <code>planetoids</code>.
+	 * The belt has the same planetoids, except that their moons don't count against the budget.
+	 * Systems built with a recipe always get a planetoid list.
+	 */
+	@Getter private final boolean belts;
+	/**
+	 * If true, the star, planets, planetoids and moons of a finished system drop their randomisers.
+	 * {@link StellarObject#random()} makes a new one from the body's seed when asked for it later
+	 * on, so it doesn't carry on where generating the body left off.
+	 */
+	@Getter private final boolean lean;
+	/**
+	 * By default, values limited to a range get drawn from the truncated distribution directly
+	 * (see {@link Truncated}), and planetary orbits only from the ones still free around the star.
+	 * If true, the generators draw from the full distributions and reject values out of range or
+	 * orbits which aren't free instead, exactly like older versions did; use this to re-create
+	 * systems generated by them. Both modes are deterministic for a given seed, but they generate
+	 * different systems, starting with the spectral class of stars drawn along with them.
+	 * <p>
+	 * Skeletons and belts keep the mode they got created with, no matter when they get built.
+	 */
+	@Getter private final boolean legacy;
+
+	private GenerationOptions(GenerationBudget budget, boolean belts, boolean lean, boolean legacy) {
+		this.budget = budget;
+		this.belts = belts;
+		this.lean = lean;
+		this.legacy = legacy;
+	}
+
+	public GenerationOptions withBudget(@NonNull GenerationBudget budget) {
+		return new GenerationOptions(budget, belts, lean, legacy);
+	}
+
+	public GenerationOptions withBelts(boolean belts) {
+		return new GenerationOptions(budget, belts, lean, legacy);
+	}
+
+	public GenerationOptions withLean(boolean lean) {
+		return new GenerationOptions(budget, belts, lean, legacy);
+	}
+
+	public GenerationOptions withLegacy(boolean legacy) {
+		return new GenerationOptions(budget, belts, lean, legacy);
+	}
+}
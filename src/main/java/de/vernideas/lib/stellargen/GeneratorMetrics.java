@@ -0,0 +1,217 @@
+package de.vernideas.lib.stellargen;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.vernideas.space.data.starclass.Type;
+import lombok.NonNull;
+
+/**
+ * Counters for the retry loops of the generators: attempts per generated body, why attempts
+ * got rejected, and how long planetary system generation takes per spectral type.
+ * <p>
+ * Disabled by default. While disabled, recording costs a single volatile read and nothing
+ * gets counted. The counters are striped ({@link LongAdder}), so concurrent generator
+ * threads don't contend on them.
+ */
+public final class GeneratorMetrics {
+	public static enum Body {
+		TERRESTIAL, GASGIANT, PLANETOID, MOON
+	}
+
+	public static enum Rejection {
+		/** The orbit crosses another planet's orbit */
+		ORBIT_NOT_FREE,
+		/** The body would (not) clear its orbital neighbourhood */
+		STERN_LEVISON,
+		/** The planetary class doesn't fit the temperature at the orbit */
+		TEMPERATURE,
+		/** The body's mass is outside of the requested range */
+		MASS_RANGE
+	}
+
+	/** Histogram bucket <code>b</code> counts bodies which needed <code>2^b</code> to <code>2^(b+1) - 1</code> attempts */
+	public static final int HISTOGRAM_BUCKETS = 32;
+
+	private static final int BODIES = Body.values().length;
+	private static final int REJECTIONS = Rejection.values().length;
+	private static final int TYPES = Type.values().length;
+
+	private static volatile boolean enabled = false;
+
+	private static final LongAdder[] accepted = adders(BODIES);
+	private static final LongAdder[] failed = adders(BODIES);
+	private static final LongAdder[] attempts = adders(BODIES);
+	private static final LongAdder[] rejections = adders(BODIES * REJECTIONS);
+	private static final LongAdder[] histogram = adders(BODIES * HISTOGRAM_BUCKETS);
+	private static final LongAdder[] systems = adders(TYPES);
+	private static final LongAdder[] systemNanos = adders(TYPES);
+	private static final LongAdder[] overBudget = adders(TYPES);
+
+	private static LongAdder[] adders(int count) {
+		LongAdder[] result = new LongAdder[count];
+		for( int i = 0; i < count; ++ i ) {
+			result[i] = new LongAdder();
+		}
+		return result;
+	}
+
+	public static boolean enabled() {
+		return enabled;
+	}
+
+	public static void enable() {
+		enabled = true;
+	}
+
+	public static void disable() {
+		enabled = false;
+	}
+
+	/** Set all counters back to zero; doesn't change whether recording is enabled */
+	public static void reset() {
+		for( LongAdder[] group : new LongAdder[][]{accepted, failed, attempts, rejections, histogram, systems, systemNanos, overBudget} ) {
+			for( LongAdder adder : group ) {
+				adder.reset();
+			}
+		}
+	}
+
+	// Recording, used by the generators
+
+	/**
+	 * Record a rejection for the given reason if the check didn't pass.
+	 *
+	 * @return the check result, so this can be used inside of conditions
+	 */
+	static boolean check(Body body, Rejection reason, boolean passed) {
+		if( !passed ) {
+			rejected(body, reason);
+		}
+		return passed;
+	}
+	
+	static void rejected(Body body, Rejection reason) {
+		if( enabled ) {
+			rejections[body.ordinal() * REJECTIONS + reason.ordinal()].increment();
+		}
+	}
+
+	/** A body got generated after the given number of attempts */
+	static void accepted(Body body, int tries) {
+		if( enabled ) {
+			accepted[body.ordinal()].increment();
+			attempts[body.ordinal()].add(tries);
+			histogram[body.ordinal() * HISTOGRAM_BUCKETS + bucket(tries)].increment();
+		}
+	}
+
+	/** The generator gave up on a body after the given number of attempts */
+	static void failed(Body body, int tries) {
+		if( enabled ) {
+			failed[body.ordinal()].increment();
+			attempts[body.ordinal()].add(tries);
+		}
+	}
+
+	static void systemGenerated(Type type, long nanos, boolean exhausted) {
+		if( enabled ) {
+			systems[type.ordinal()].increment();
+			systemNanos[type.ordinal()].add(nanos);
+			if( exhausted ) {
+				overBudget[type.ordinal()].increment();
+			}
+		}
+	}
+
+	private static int bucket(int tries) {
+		return Math.min(31 - Integer.numberOfLeadingZeros(Math.max(tries, 1)), HISTOGRAM_BUCKETS - 1);
+	}
+
+	// Queries
+
+	/** Number of bodies generated */
+	public static long accepted(@NonNull Body body) {
+		return accepted[body.ordinal()].sum();
+	}
+
+	/** Number of times the generator ran out of retries */
+	public static long failed(@NonNull Body body) {
+		return failed[body.ordinal()].sum();
+	}
+
+	/** Total attempts, including those for failed bodies */
+	public static long attempts(@NonNull Body body) {
+		return attempts[body.ordinal()].sum();
+	}
+
+	/** Average attempts per generated body, including the attempts wasted on failed ones */
+	public static double attemptsPerBody(@NonNull Body body) {
+		long count = accepted(body);
+		return count > 0 ? (double)attempts(body) / count : 0.0;
+	}
+
+	public static long rejections(@NonNull Body body, @NonNull Rejection reason) {
+		return rejections[body.ordinal() * REJECTIONS + reason.ordinal()].sum();
+	}
+
+	/** Attempts per generated body, see {@link #HISTOGRAM_BUCKETS} for the bucket layout */
+	public static long[] attemptsHistogram(@NonNull Body body) {
+		long[] result = new long[HISTOGRAM_BUCKETS];
+		for( int b = 0; b < HISTOGRAM_BUCKETS; ++ b ) {
+			result[b] = histogram[body.ordinal() * HISTOGRAM_BUCKETS + b].sum();
+		}
+		return result;
+	}
+
+	/** Number of planetary systems generated around stars of the given type */
+	public static long systems(@NonNull Type type) {
+		return systems[type.ordinal()].sum();
+	}
+
+	/** Total time spent generating planetary systems around stars of the given type */
+	public static long systemNanos(@NonNull Type type) {
+		return systemNanos[type.ordinal()].sum();
+	}
+
+	/** Number of planetary systems cut short by their {@link GenerationBudget} */
+	public static long systemsOverBudget(@NonNull Type type) {
+		return overBudget[type.ordinal()].sum();
+	}
+
+	/** Human-readable summary of all non-zero counters */
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		for( Body body : Body.values() ) {
+			long count = accepted(body);
+			if( count == 0 && failed(body) == 0 ) {
+				continue;
+			}
+			sb.append(String.format(Locale.ROOT, "%-11s %8d generated, %6d failed, %8.2f attempts each",
+					body, count, failed(body), attemptsPerBody(body)));
+			for( Rejection reason : Rejection.values() ) {
+				long rejected = rejections(body, reason);
+				if( rejected > 0 ) {
+					sb.append(", ").append(reason).append(' ').append(rejected);
+				}
+			}
+			sb.append('\n');
+		}
+		for( Type type : Type.values() ) {
+			long count = systems(type);
+			if( count > 0 ) {
+				sb.append(String.format(Locale.ROOT, "%-11s %8d systems, %10.3f ms each",
+						type, count, systemNanos(type) / 1e6 / count));
+				long over = systemsOverBudget(type);
+				if( over > 0 ) {
+					sb.append(", ").append(over).append(" over budget");
+				}
+				sb.append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	// Static-only class; no need for instances of it
+	private GeneratorMetrics() {}
+}
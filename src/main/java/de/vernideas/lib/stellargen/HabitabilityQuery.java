@@ -0,0 +1,257 @@
+package de.vernideas.lib.stellargen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.vernideas.space.data.Belt;
+import de.vernideas.space.data.BodyPhysics;
+import de.vernideas.space.data.Constant;
+import de.vernideas.space.data.Moon;
+import de.vernideas.space.data.Planet;
+import de.vernideas.space.data.Satellite;
+import de.vernideas.space.data.SatelliteView;
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.VectorD3D;
+import de.vernideas.space.data.starclass.StarClassHelper;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * Habitable planets, planetoids and moons (see {@link Satellite#habitable()}) around the stars of a
+ * {@link StarCatalog}, best {@link #score(Satellite) score} first.
+ * <p>
+ * Stars get ruled out from the catalog data alone where possible: a habitable body's main body
+ * orbits where a blackbody would be within the habitable temperatures (see {@link BodyPhysics}),
+ * which has to overlap the orbits
+ * planets can have around the star. Only the remaining systems get built, and inside them only
+ * bodies orbiting in that range get checked. The results of each star are kept, so later queries
+ * over the same stars only cost the filtering.
+ * <p>
+ * Safe to use from multiple threads.
+ */
+@Accessors(fluent = true)
+public final class HabitabilityQuery {
+	private static final Match[] NONE = new Match[0];
+	private static final Comparator<Match> BEST_FIRST = new Comparator<Match>() {
+		@Override public int compare(Match o1, Match o2) {
+			int result = Double.compare(o2.score, o1.score);
+			return (result != 0 ? result : Long.compare(o1.starNumber, o2.starNumber));
+		}
+	};
+
+	/** Allowance for rounding when comparing orbits against temperatures */
+	private static final double SLACK = 1e-9;
+
+	@Getter private final StarCatalog catalog;
+	/** How the systems get built */
+	@Getter private final GenerationOptions options;
+	/** Matches of each catalog entry; null until its system got checked */
+	private final AtomicReferenceArray<Match[]> matches;
+	/** Average number of planets by {@link StarCatalog#classIndex(int) class index} */
+	private final double[] expectedPlanets;
+
+	public HabitabilityQuery(@NonNull StarCatalog catalog) {
+		this(catalog, GenerationOptions.DEFAULT.withLegacy(catalog.legacy()));
+	}
+
+	/** @throws IllegalArgumentException if the options are for another sampling mode than the catalog's */
+	public HabitabilityQuery(@NonNull StarCatalog catalog, @NonNull GenerationOptions options) {
+		catalog.checkOptions(options);
+		this.catalog = catalog;
+		this.options = options;
+		this.matches = new AtomicReferenceArray<Match[]>(catalog.size());
+		// Looked up by name, so only do that once per class
+		List<String> classes = StarGenerator.spectralClasses();
+		this.expectedPlanets = new double[classes.size()];
+		for( int i = 0; i < expectedPlanets.length; ++ i ) {
+			expectedPlanets[i] = StarClassHelper.avgPlanets(StarClassHelper.parse(classes.get(i)));
+		}
+	}
+
+	/** Habitable bodies of the stars inside the given box (both corners inclusive), best first, checked on the current thread */
+	public List<Match> find(@NonNull VectorD3D min, @NonNull VectorD3D max, int limit) {
+		return find(min, max, limit, null);
+	}
+
+	/**
+	 * Habitable bodies of the stars inside the given box (both corners inclusive), best first.
+	 * Systems not checked before get built using the supplied pool; <code>null</code> builds them
+	 * on the current thread.
+	 *
+	 * @param limit maximum number of results
+	 */
+	public List<Match> find(@NonNull VectorD3D min, @NonNull VectorD3D max, int limit, ForkJoinPool pool) {
+		if( limit < 0 ) {
+			throw new IllegalArgumentException("Negative limit: " + limit);
+		}
+		int[] candidates = candidates(min, max);
+		check(candidates, pool);
+		List<Match> result = new ArrayList<Match>();
+		for( int i : candidates ) {
+			Collections.addAll(result, matches.get(i));
+		}
+		Collections.sort(result, BEST_FIRST);
+		return (result.size() > limit ? new ArrayList<Match>(result.subList(0, limit)) : result);
+	}
+
+	/**
+	 * Catalog entries inside the given box (both corners inclusive) which could have habitable
+	 * bodies, going by the catalog data alone. The ones expecting the most planets come first.
+	 */
+	public int[] candidates(@NonNull VectorD3D min, @NonNull VectorD3D max) {
+		double minX = Math.min(min.x, max.x), maxX = Math.max(min.x, max.x);
+		double minY = Math.min(min.y, max.y), maxY = Math.max(min.y, max.y);
+		double minZ = Math.min(min.z, max.z), maxZ = Math.max(min.z, max.z);
+		List<Integer> result = new ArrayList<Integer>();
+		for( int i = 0; i < catalog.size(); ++ i ) {
+			double x = catalog.x(i), y = catalog.y(i), z = catalog.z(i);
+			if( x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ
+					&& habitableOrbitsPossible(catalog.luminosity(i), catalog.mass(i)) ) {
+				result.add(i);
+			}
+		}
+		// The biggest systems take longest to build, so start them first
+		Collections.sort(result, new Comparator<Integer>() {
+			@Override public int compare(Integer o1, Integer o2) {
+				return Double.compare(expectedPlanets[catalog.classIndex(o2)], expectedPlanets[catalog.classIndex(o1)]);
+			}
+		});
+		int[] entries = new int[result.size()];
+		for( int i = 0; i < entries.length; ++ i ) {
+			entries[i] = result.get(i);
+		}
+		return entries;
+	}
+
+	/**
+	 * True if the orbits with a habitable blackbody temperature overlap the ones
+	 * planets and planetoids can have, see {@link Star#orbitFree(double, double, double)}. Only
+	 * uses the lower bound of the inner planet limit, since it also depends on the original
+	 * luminosity.
+	 */
+	private static boolean habitableOrbitsPossible(double luminosity, double mass) {
+		double innerLimit = mass / Constant.SOLAR_MASS * 0.1 * Constant.AU;
+		// Planetoids can orbit up to twice as far out as planets
+		double outerLimit = mass / Constant.SOLAR_MASS * 40.0 * Constant.AU * 2.0;
+		return distance(luminosity, BodyPhysics.MIN_HABITABLE_TEMPERATURE) * (1.0 + SLACK) >= innerLimit
+				&& distance(luminosity, BodyPhysics.MAX_HABITABLE_TEMPERATURE) * (1.0 - SLACK) <= outerLimit;
+	}
+
+	/** Orbital radius with the given blackbody temperature, see {@link Star#distanceForTemperature(double)} */
+	private static double distance(double luminosity, double temperature) {
+		return Math.sqrt(luminosity / Constant.STEFAN_BOLTZMANN_PI) / (4.0 * temperature * temperature);
+	}
+
+	/** Check the entries not checked yet, biggest systems first */
+	private void check(int[] entries, ForkJoinPool pool) {
+		int[] pending = new int[entries.length];
+		int count = 0;
+		for( int i : entries ) {
+			if( null == matches.get(i) ) {
+				pending[count ++] = i;
+			}
+		}
+		int size = count;
+		AtomicInteger next = new AtomicInteger();
+		Runnable worker = () -> {
+			int k;
+			while( (k = next.getAndIncrement()) < size ) {
+				int i = pending[k];
+				matches.compareAndSet(i, null, check(i));
+			}
+		};
+		if( null == pool || size <= 1 ) {
+			worker.run();
+			return;
+		}
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		for( int w = Math.min(pool.getParallelism(), size); w > 0; -- w ) {
+			tasks.add(pool.submit(worker));
+		}
+		for( ForkJoinTask<?> task : tasks ) {
+			task.join();
+		}
+	}
+
+	/** Build the system of the catalog entry and collect its habitable bodies */
+	private Match[] check(int i) {
+		Star star = catalog.system(i, options);
+		double innerRadius = distance(star.luminosity(), BodyPhysics.MAX_HABITABLE_TEMPERATURE) * (1.0 - SLACK);
+		double outerRadius = distance(star.luminosity(), BodyPhysics.MIN_HABITABLE_TEMPERATURE) * (1.0 + SLACK);
+		List<Match> result = new ArrayList<Match>();
+		List<Planet> bodies = new ArrayList<Planet>(star.planets);
+		bodies.addAll(star.planetoids);
+		Belt belt = star.belt();
+		if( null != belt ) {
+			for( int p = 0; p < belt.count(); ++ p ) {
+				if( belt.radius(p) >= innerRadius && belt.radius(p) <= outerRadius ) {
+					bodies.add(belt.planetoid(p));
+				}
+			}
+		}
+		for( Planet planet : bodies ) {
+			// The moons have the planet's temperature
+			if( planet.orbit().radius < innerRadius || planet.orbit().radius > outerRadius ) {
+				continue;
+			}
+			if( planet.habitable() ) {
+				result.add(new Match(i, catalog.starNumber(i), catalog.spectralClass(i), star.name(), planet.freeze(), score(planet)));
+			}
+			for( Moon moon : planet.moons ) {
+				if( moon.habitable() ) {
+					result.add(new Match(i, catalog.starNumber(i), catalog.spectralClass(i), star.name(), moon.freeze(), score(moon)));
+				}
+			}
+		}
+		return (result.isEmpty() ? NONE : result.toArray(new Match[result.size()]));
+	}
+
+	/**
+	 * How Earth-like a habitable body is, from 0 to 1: 1 in the middle of the temperature and
+	 * gravity ranges {@link Satellite#habitable()} accepts, going down to 0 at their limits.
+	 * 0 for bodies which aren't habitable.
+	 */
+	public static double score(@NonNull Satellite body) {
+		if( !body.habitable() ) {
+			return 0.0;
+		}
+		return closeness(body.blackbodyTemperature(), BodyPhysics.MIN_HABITABLE_TEMPERATURE, BodyPhysics.MAX_HABITABLE_TEMPERATURE)
+				* closeness(body.surfaceGravity(), BodyPhysics.MIN_HABITABLE_GRAVITY, BodyPhysics.MAX_HABITABLE_GRAVITY);
+	}
+
+	/** 1 in the middle of the range, 0 at both ends */
+	private static double closeness(double value, double min, double max) {
+		double half = (max - min) / 2.0;
+		return Math.max(0.0, 1.0 - Math.abs(value - (min + half)) / half);
+	}
+
+	/** A habitable body and where to find it */
+	@ToString
+	@Accessors(fluent = true)
+	public static final class Match {
+		/** Entry in the catalog */
+		@Getter private final int index;
+		@Getter private final long starNumber;
+		@Getter private final String spectralClass;
+		@Getter private final String starName;
+		@Getter private final SatelliteView body;
+		@Getter private final double score;
+
+		private Match(int index, long starNumber, String spectralClass, String starName, SatelliteView body, double score) {
+			this.index = index;
+			this.starNumber = starNumber;
+			this.spectralClass = spectralClass;
+			this.starName = starName;
+			this.body = body;
+			this.score = score;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package de.vernideas.lib.stellargen;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.vernideas.space.data.Constant;
+import de.vernideas.space.data.Moon;
+import de.vernideas.space.data.Planet;
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.Universe;
+import lombok.NonNull;
+
+/**
+ * Generates star systems for MekHQ map coordinates and writes them as <code>&lt;planet&gt;</code>
+ * XML elements.
+ * <p>
+ * Each system only depends on its (rounded) coordinates. Systems get generated and rendered
+ * in parallel, and are written in input order through a single buffered writer.
+ */
+public final class MekHQExporter {
+	private static final double[] POWERS_OF_TEN = {1.0, 10.0, 100.0, 1000.0, 10000.0, 100000.0, 1000000.0};
+	/** Above this (scaled) value, fall back to String.format */
+	private static final double MAX_FAST_FORMAT = 1e15;
+
+	private final ForkJoinPool pool;
+	/** Maximum amount of systems generated ahead of the writer */
+	private final int window;
+
+	public MekHQExporter() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public MekHQExporter(@NonNull ForkJoinPool pool) {
+		this.pool = pool;
+		this.window = Math.max(pool.getParallelism() * 4, 4);
+	}
+
+	/** Coordinates get rounded to three decimals, same as in the output */
+	public static double roundCoordinate(double coordinate) {
+		return Math.round(coordinate * 1000.0) / 1000.0;
+	}
+
+	/** Universe seed for the given (rounded) coordinates */
+	public static long coordinateSeed(double x, double y) {
+		return GenUtil.deriveSeed(GenUtil.mix64(Double.doubleToLongBits(x)), Double.doubleToLongBits(y));
+	}
+
+	/** Generate the star system at the given coordinates */
+	public static Star system(double x, double y) {
+		return SystemGenerator.star(new Universe(coordinateSeed(roundCoordinate(x), roundCoordinate(y))));
+	}
+
+	/**
+	 * Generate and write the systems for all coordinate pairs <code>(x[i], y[i])</code>,
+	 * in that order. The writer gets flushed, but not closed.
+	 */
+	public void export(@NonNull double[] x, @NonNull double[] y, @NonNull Writer out) throws IOException {
+		if( x.length != y.length ) {
+			throw new IllegalArgumentException("Coordinate arrays differ in length: " + x.length + " vs. " + y.length);
+		}
+		Writer writer = (out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16));
+		ArrayDeque<ForkJoinTask<StringBuilder>> pending = new ArrayDeque<ForkJoinTask<StringBuilder>>(window);
+		try {
+			for( int i = 0; i < x.length; ++ i ) {
+				final double px = roundCoordinate(x[i]);
+				final double py = roundCoordinate(y[i]);
+				pending.add(pool.submit(() -> render(px, py)));
+				if( pending.size() >= window ) {
+					writer.append(pending.poll().join());
+				}
+			}
+			while( !pending.isEmpty() ) {
+				writer.append(pending.poll().join());
+			}
+		} finally {
+			for( ForkJoinTask<StringBuilder> task : pending ) {
+				task.cancel(false);
+			}
+			writer.flush();
+		}
+	}
+
+	/** Generate and render the system at the given (already rounded) coordinates */
+	private static StringBuilder render(double x, double y) {
+		Star star = SystemGenerator.star(new Universe(coordinateSeed(x, y)));
+		StringBuilder sb = new StringBuilder(1024);
+		sb.append("<planet>\n<id>RAND_");
+		appendFixed(sb, x, 3).append('_');
+		appendFixed(sb, y, 3).append("</id>\n");
+		appendFixed(sb.append("<xcood>"), x, 3).append("</xcood>\n");
+		appendFixed(sb.append("<ycood>"), y, 3).append("</ycood>\n");
+		sb.append("<faction>NONE</faction>\n");
+		sb.append("<spectralType>").append(star.starClass.fullDeclaration()).append("</spectralType>\n");
+		sb.append("<planets>").append(star.planets.size()).append("</planets>\n");
+		sb.append("<minorPlanets>").append(star.planetoids.size()).append("</minorPlanets>\n");
+		sb.append("<!-- Most livable planet, if any -->\n");
+		int sysPos = 0;
+		for( Planet planet : star.planets ) {
+			++ sysPos;
+			if( planet.habitable() ) {
+				renderPlanet(sb, planet, sysPos);
+				break;
+			}
+		}
+		sb.append("</planet>\n");
+		return sb;
+	}
+
+	private static void renderPlanet(StringBuilder sb, Planet planet, int sysPos) {
+		appendEscaped(sb.append("<name>"), planet.mainStar().name() + " " + GenUtil.romanNumber(sysPos)).append("</name>\n");
+		sb.append("<sysPos>").append(sysPos).append("</sysPos>\n");
+		appendFixed(sb.append("<orbitRadius>"), planet.orbit().radius / Constant.AU, 4).append("</orbitRadius>\n");
+		appendFixed(sb.append("<orbitEccentricity>"), planet.orbit().eccentricity, 4).append("</orbitEccentricity>\n");
+		appendFixed(sb.append("<orbitInclination>"), planet.orbit().inclination, 2).append("</orbitInclination>\n");
+		appendFixed(sb.append("<temperature>"), planet.blackbodyTemperature() - Constant.CELSIUS_ZERO, 0).append("</temperature>\n");
+		sb.append("<satellites>").append(planet.moons.size()).append("</satellites>\n");
+		for( Moon moon : planet.moons ) {
+			appendEscaped(sb.append("<satellite>"), moon.name()).append("</satellite>\n");
+		}
+		appendFixed(sb.append("<mass>"), planet.mass() / Constant.EARTH_MASS, 3).append("</mass>\n");
+		appendFixed(sb.append("<radius>"), planet.diameter() / Constant.EARTH_DIAMETER, 3).append("</radius>\n");
+		appendFixed(sb.append("<density>"), planet.density(), 3).append("</density>\n");
+		appendFixed(sb.append("<gravity>"), planet.surfaceGravity() / Constant.EARTH_SURFACE_GRAVITY, 3).append("</gravity>\n");
+		appendFixed(sb.append("<dayLength>"), planet.dayLength() / 3600, 2).append("</dayLength>\n");
+		appendEscaped(sb.append("<class>"), planet.planetaryClass().name).append("</class>\n");
+	}
+
+	/**
+	 * Append the value with a fixed amount of decimals (0 to 6), rounding half up,
+	 * without creating intermediate strings.
+	 */
+	static StringBuilder appendFixed(StringBuilder sb, double value, int decimals) {
+		double scale = POWERS_OF_TEN[decimals];
+		double scaled = Math.abs(value) * scale;
+		if( Double.isNaN(value) || scaled >= MAX_FAST_FORMAT ) {
+			return sb.append(String.format(Locale.ROOT, "%." + decimals + "f", value));
+		}
+		long units = (long)Math.floor(scaled + 0.5);
+		if( value < 0.0 ) {
+			sb.append('-');
+		}
+		long whole = units / (long)scale;
+		sb.append(whole);
+		if( decimals > 0 ) {
+			sb.append('.');
+			long fraction = units - whole * (long)scale;
+			for( long digit = (long)scale / 10; digit > 0; digit /= 10 ) {
+				sb.append((char)('0' + (fraction / digit) % 10));
+			}
+		}
+		return sb;
+	}
+
+	private static StringBuilder appendEscaped(StringBuilder sb, String text) {
+		for( int i = 0; i < text.length(); ++ i ) {
+			char c = text.charAt(i);
+			switch( c ) {
+				case '<': sb.append("&lt;"); break;
+				case '>': sb.append("&gt;"); break;
+				case '&': sb.append("&amp;"); break;
+				default: sb.append(c); break;
+			}
+		}
+		return sb;
+	}
+}
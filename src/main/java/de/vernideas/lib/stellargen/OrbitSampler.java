@@ -0,0 +1,228 @@
+package de.vernideas.lib.stellargen;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import de.vernideas.lib.stellargen.sampler.WeightedSampler;
+import de.vernideas.space.data.Constant;
+import de.vernideas.space.data.Pair;
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.planetaryclass.PlanetaryClass;
+
+/**
+ * Picks a planetary class and an orbital radius in one go, limited to the orbits which are still
+ * free and to the temperature range of the class.
+ * <p>
+ * The result has the same distribution as drawing a class and a blackbody temperature independently
+ * and retrying until the combination fits, but needs no retries. Blackbody temperatures are given
+ * by their CDF; see the <code>*TemperatureCdf</code> methods for the ones matching
+ * {@link PlanetGenerator#newPlanetaryOrbit}.
+ */
+final class OrbitSampler {
+	/** Temperature bisection steps; enough to get below the double resolution */
+	private static final int BISECTION_STEPS = 64;
+
+	/**
+	 * Probability for an independently drawn class and temperature to fit.
+	 * 
+	 * @param free allowed radii, as returned by {@link Star#freeOrbits(double, double)}
+	 * @param classes candidate classes with their weights
+	 * @param temperatureCdf CDF of the blackbody temperature
+	 */
+	static double probability(Star star, double[] free, WeightedSampler<PlanetaryClass> classes, DoubleUnaryOperator temperatureCdf) {
+		double total = 0.0;
+		double weights = 0.0;
+		for( int i = 0; i < classes.size(); ++ i ) {
+			total += classes.weight(i) * probability(star, free, classes.value(i), temperatureCdf);
+			weights += classes.weight(i);
+		}
+		return total / weights;
+	}
+
+	/**
+	 * Body properties drawn before the orbit (mass) can make finding a fitting orbit more or less
+	 * likely. When retrying, this shifts the distribution of those properties. To keep that shift,
+	 * the sample gets rejected with a probability of <code>1 - p / reference</code>, <code>p</code>
+	 * being the {@link #probability(Star, double[], WeightedSampler, DoubleUnaryOperator) probability} to
+	 * fit, and <code>reference</code> the highest such probability over the possible properties.
+	 * 
+	 * @param free allowed radii, as returned by {@link Star#freeOrbits(double, double)}
+	 * @param classes candidate classes with their weights
+	 * @param temperatureCdf CDF of the blackbody temperature
+	 * @param reference highest probability to fit, 0 to never reject
+	 * @return the class and the orbital radius, or null if nothing fits or the sample got rejected
+	 */
+	static Pair<PlanetaryClass, Double> sample(Random rnd, Star star, double[] free,
+			WeightedSampler<PlanetaryClass> classes, DoubleUnaryOperator temperatureCdf, double reference) {
+		if( free.length == 0 ) {
+			return null;
+		}
+		double[] weights = new double[classes.size()];
+		double total = 0.0;
+		double weightSum = 0.0;
+		for( int i = 0; i < weights.length; ++ i ) {
+			weights[i] = classes.weight(i) * probability(star, free, classes.value(i), temperatureCdf);
+			total += weights[i];
+			weightSum += classes.weight(i);
+		}
+		if( !(total > 0.0) ) {
+			return null;
+		}
+		if( total / weightSum < reference && rnd.nextDouble() * reference >= total / weightSum ) {
+			return null;
+		}
+
+		double pick = rnd.nextDouble() * total;
+		int index = 0;
+		while( index < weights.length - 1 && (pick >= weights[index] || weights[index] <= 0.0) ) {
+			pick -= weights[index];
+			++ index;
+		}
+		PlanetaryClass pClass = classes.value(index);
+
+		// Walk the temperature ranges again, stopping at the target probability
+		double target = rnd.nextDouble() * probability(star, free, pClass, temperatureCdf);
+		int last = -1;
+		for( int i = 0; i < free.length; i += 2 ) {
+			double hot = Math.min(star.blackbodyTemp(free[i]), pClass.maxTemperature());
+			double cold = coldLimit(star.blackbodyTemp(free[i + 1]), pClass);
+			if( cold >= hot ) {
+				continue;
+			}
+			double low = temperatureCdf.applyAsDouble(cold);
+			double range = temperatureCdf.applyAsDouble(hot) - low;
+			if( target <= range ) {
+				return Pair.of(pClass, radius(star, free, i, invert(temperatureCdf, low + target, cold, hot)));
+			}
+			target -= range;
+			last = i;
+		}
+		// Rounding errors; use the coldest end of the last range
+		return (last < 0 ? null : Pair.of(pClass, radius(star, free, last, coldLimit(star.blackbodyTemp(free[last + 1]), pClass))));
+	}
+
+	private static double radius(Star star, double[] free, int index, double temperature) {
+		return Math.max(free[index], Math.min(free[index + 1], star.distanceForTemperature(temperature)));
+	}
+
+	/** Probability of a temperature inside of both the free ranges and the limits of the class */
+	private static double probability(Star star, double[] free, PlanetaryClass pClass, DoubleUnaryOperator temperatureCdf) {
+		double result = 0.0;
+		for( int i = 0; i < free.length; i += 2 ) {
+			double hot = Math.min(star.blackbodyTemp(free[i]), pClass.maxTemperature());
+			double cold = coldLimit(star.blackbodyTemp(free[i + 1]), pClass);
+			if( cold < hot ) {
+				result += temperatureCdf.applyAsDouble(hot) - temperatureCdf.applyAsDouble(cold);
+			}
+		}
+		return result;
+	}
+
+	/** Orbits report the background temperature as their minimum, so classes including it accept anything colder */
+	private static double coldLimit(double temperature, PlanetaryClass pClass) {
+		return pClass.minTemperature() <= Constant.UNIVERSE_TEMPERATURE ? temperature : Math.max(temperature, pClass.minTemperature());
+	}
+
+	/** Temperature with the given CDF value between <code>cold</code> and <code>hot</code> */
+	private static double invert(DoubleUnaryOperator cdf, double p, double cold, double hot) {
+		for( int i = 0; i < BISECTION_STEPS && cold < hot; ++ i ) {
+			double mid = 0.5 * (cold + hot);
+			if( mid <= cold || mid >= hot ) {
+				break;
+			}
+			if( cdf.applyAsDouble(mid) < p ) {
+				cold = mid;
+			} else {
+				hot = mid;
+			}
+		}
+		return 0.5 * (cold + hot);
+	}
+
+	/**
+	 * Clip the free ranges to <code>[min, max]</code>, for example because of a Stern-Levison
+	 * parameter limit.
+	 */
+	static double[] clip(double[] free, double min, double max) {
+		double[] result = new double[free.length];
+		int size = 0;
+		for( int i = 0; i < free.length; i += 2 ) {
+			double from = Math.max(free[i], min);
+			double to = Math.min(free[i + 1], max);
+			if( from < to ) {
+				result[size ++] = from;
+				result[size ++] = to;
+			}
+		}
+		return (size == result.length ? result : Arrays.copyOf(result, size));
+	}
+
+	// Blackbody temperature distributions, see PlanetGenerator
+
+	private static final double MAX_TEMPERATURE = 3200.0;
+	private static final double FILTER_TEMPERATURE = 150.0;
+
+	/** <code>lerp(3200, 0, min(u1, u2)^0.25)</code> */
+	static double baseTemperatureCdf(double temperature) {
+		if( temperature <= 0.0 ) {
+			return 0.0;
+		}
+		if( temperature >= MAX_TEMPERATURE ) {
+			return 1.0;
+		}
+		double x = 1.0 - Math.pow(1.0 - temperature / MAX_TEMPERATURE, 4.0);
+		return x * x;
+	}
+
+	/** <code>lerp(3200, 0, u^0.25)</code> */
+	private static double singleTemperatureCdf(double temperature) {
+		if( temperature <= 0.0 ) {
+			return 0.0;
+		}
+		if( temperature >= MAX_TEMPERATURE ) {
+			return 1.0;
+		}
+		return 1.0 - Math.pow(1.0 - temperature / MAX_TEMPERATURE, 4.0);
+	}
+
+	/** <code>lerp(150, 0, min(u1, u2)^0.2)</code> */
+	private static double coldTemperatureCdf(double temperature) {
+		if( temperature <= 0.0 ) {
+			return 0.0;
+		}
+		if( temperature >= FILTER_TEMPERATURE ) {
+			return 1.0;
+		}
+		double x = 1.0 - Math.pow(1.0 - temperature / FILTER_TEMPERATURE, 5.0);
+		return x * x;
+	}
+
+	/** Terrestial planets: cold orbits get a second, warmer chance the lighter the planet is */
+	static DoubleUnaryOperator terrestialTemperatureCdf(double mass) {
+		double filtered = Math.max(0.0, 1.0 - mass / Constant.MAX_TERRESTRIAL_MASS);
+		double baseAtFilter = baseTemperatureCdf(FILTER_TEMPERATURE);
+		return (temperature) -> {
+			double cold = baseTemperatureCdf(Math.min(temperature, FILTER_TEMPERATURE));
+			return Math.max(0.0, baseTemperatureCdf(temperature) - baseAtFilter)
+					+ (1.0 - filtered) * cold + filtered * cold * singleTemperatureCdf(temperature);
+		};
+	}
+
+	/** Gas giants: hot orbits get moved out beyond the frost line the heavier the planet is */
+	static DoubleUnaryOperator gasgiantTemperatureCdf(double mass) {
+		double filtered = Math.max(0.0, 1.0 - Constant.MAX_TERRESTRIAL_MASS / mass);
+		double baseAtFilter = baseTemperatureCdf(FILTER_TEMPERATURE);
+		return (temperature) -> baseTemperatureCdf(Math.min(temperature, FILTER_TEMPERATURE))
+				+ (1.0 - filtered) * Math.max(0.0, baseTemperatureCdf(temperature) - baseAtFilter)
+				+ filtered * (1.0 - baseAtFilter) * coldTemperatureCdf(temperature);
+	}
+
+	/** Planetoids: everything at 1/2.5 of the temperature */
+	static double planetoidTemperatureCdf(double temperature) {
+		return baseTemperatureCdf(temperature * 2.5);
+	}
+
+	// Static-only class; no need for instances of it
+	private OrbitSampler() {}
+}
@@ -1,15 +1,18 @@
 package de.vernideas.lib.stellargen;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Locale;
 import java.util.Random;
-import java.util.TreeMap;
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
 import org.apache.commons.math3.distribution.BetaDistribution;
 import org.apache.commons.math3.distribution.RealDistribution;
 
+import de.vernideas.lib.stellargen.GenerationBudget.Tracker;
+import de.vernideas.lib.stellargen.GeneratorMetrics.Body;
+import de.vernideas.lib.stellargen.GeneratorMetrics.Rejection;
+import de.vernideas.lib.stellargen.sampler.DoubleSampler;
+import de.vernideas.lib.stellargen.sampler.InverseCdfTable;
+import de.vernideas.lib.stellargen.sampler.WeightedSampler;
 import de.vernideas.space.data.Constant;
 import de.vernideas.space.data.Material;
 import de.vernideas.space.data.Moon;
@@ -22,25 +25,65 @@ import de.vernideas.space.data.planetaryclass.PlanetaryClass;
 import lombok.NonNull;
 
 public final class PlanetGenerator {	
-	private static void generateMoons(Planet planet) {
-		if( planet.mass() / 25.0 > Constant.MIN_MOON_MASS ) {
-			double moonEstimate = 8.5 * Math.exp(-65000.0 / planet.mass() * Constant.YOTTAGRAM)
-					+ planet.random().nextGaussian() * 0.5 * Math.pow(planet.mass() / Constant.YOTTAGRAM, 0.135);
-			// Lower the chances for small Hill radii
-			if( planet.hillsRadius() < 0.01 * Constant.AU ) {
-				moonEstimate *= Math.pow(planet.hillsRadius() * 100.0 / Constant.AU, 0.4);
-			}
-			int majorMoons = Long.valueOf(Math.round(Math.min(moonEstimate, planet.hillsRadius() * 1000.0 / Constant.AU))).intValue();
-			double maxMass = Math.min(planet.mass() / 25.0, Constant.MAX_TERRESTRIAL_MASS * 2.0);
-			for( int m = 0; m < majorMoons; ++ m )
-			{
-				planet.moons.add(newMoon((Star)planet.parent(), planet, 
-						(rnd) -> GenUtil.lerp(Constant.MIN_MOON_MASS, maxMass, Math.pow(rnd.nextDouble(), 9.0)),
-						null));
+	/** Rotation period in seconds, for all kinds of bodies */
+	private static final DoubleSampler ROTATION_PERIOD = DoubleSampler.normal(72000, 60000);
+	/** Eccentricity of planets and planetoids, before flattening out low-lying orbits */
+	private static final DoubleSampler PLANET_ECCENTRICITY = DoubleSampler.power(0.0, 0.8, 4.0);
+	/** Eccentricity of moons, before limiting it by the Roche limit */
+	private static final DoubleSampler MOON_ECCENTRICITY = DoubleSampler.power(0.0, 1.0, 6.0).map((e) -> e / 1.01);
+	
+	/**
+	 * In {@link GenerationOptions#legacy() legacy mode}, moons draw their seeds and orbits from the planet's
+	 * randomiser, one after the other. Otherwise, each moon only depends on the planet and its slot,
+	 * see {@link #newMoon(Planet, int)}.
+	 */
+	private static void generateMoons(Planet planet, Tracker budget, boolean legacy) {
+		budget.decorating();
+		int majorMoons = moonSlots(planet, legacy ? planet.random() : moonSlotRandom(planet));
+		if( majorMoons <= 0 ) {
+			return;
+		}
+		DoubleSampler massGenerator = moonMassGenerator(planet);
+		for( int m = 0; m < majorMoons; ++ m )
+		{
+			Moon moon = newMoon(planet.parent(), planet, massGenerator, null, legacy ? -1 : m, budget, legacy);
+			if( null != moon ) {
+				planet.moons.add(moon);
 			}
 		}
 	}
 	
+	/** Number of moons to try for; draws one <code>nextGaussian()</code> if the planet is heavy enough for any */
+	private static int moonSlots(Planet planet, Random rnd) {
+		if( planet.mass() / 25.0 <= Constant.MIN_MOON_MASS ) {
+			return 0;
+		}
+		double moonEstimate = 8.5 * Math.exp(-65000.0 / planet.mass() * Constant.YOTTAGRAM)
+				+ rnd.nextGaussian() * 0.5 * Math.pow(planet.mass() / Constant.YOTTAGRAM, 0.135);
+		// Lower the chances for small Hill radii
+		if( planet.hillsRadius() < 0.01 * Constant.AU ) {
+			moonEstimate *= Math.pow(planet.hillsRadius() * 100.0 / Constant.AU, 0.4);
+		}
+		return Math.max(0, Long.valueOf(Math.round(Math.min(moonEstimate, planet.hillsRadius() * 1000.0 / Constant.AU))).intValue());
+	}
+	
+	private static Random moonSlotRandom(Planet planet) {
+		return new Random(GenUtil.deriveSeed(planet.seed(), -1L));
+	}
+	
+	private static DoubleSampler moonMassGenerator(Planet planet) {
+		double maxMass = Math.min(planet.mass() / 25.0, Constant.MAX_TERRESTRIAL_MASS * 2.0);
+		return DoubleSampler.power(Constant.MIN_MOON_MASS, maxMass, 9.0);
+	}
+	
+	/**
+	 * Number of moon slots of a finished planet or planetoid; each slot gets a moon from
+	 * {@link #newMoon(Planet, int)}, unless none fits.
+	 */
+	public static int moonSlots(@NonNull Planet planet) {
+		return moonSlots(planet, moonSlotRandom(planet));
+	}
+	
 	/**
 	 * This method tries <i>once</i> and returns null if it failed for the given star.
 	 * This lets the generator retry with a new planetary seed.
@@ -63,7 +106,7 @@ public final class PlanetGenerator {
 			blackbodyTemp = filter.filter(blackbodyTemp);
 		}
 		double orbit = star.distanceForTemperature(blackbodyTemp);
-		double eccentricity = Math.pow(planet.random().nextDouble(), 4.0) * 0.8;
+		double eccentricity = PLANET_ECCENTRICITY.sample(planet.random());
 		// Flatten out the eccentricity for low-lying planetary orbits (below 1.99 AU for the Sun)
 		if( orbit / Constant.AU < star.mass() / 1e30 ) {
 			eccentricity *= (orbit / Constant.AU * 1e30 / star.mass());
@@ -75,47 +118,155 @@ public final class PlanetGenerator {
 		return null;
 	}
 	
+	/**
+	 * Pick the planetary class and the orbit together, from the orbits still free around the star
+	 * and between <code>minRadius</code> and <code>maxRadius</code>. Blackbody temperatures and
+	 * eccentricities follow the same distributions as with {@link #newPlanetaryOrbit}.
+	 * <p>
+	 * The free orbits get calculated for circular orbits, which makes them a superset of the free
+	 * orbits for any eccentricity. The final orbit gets validated once the eccentricity is known,
+	 * so the result is the same as from retrying with {@link #newPlanetaryOrbit}, just with far
+	 * fewer retries. See {@link OrbitSampler#sample} for <code>reference</code>.
+	 * 
+	 * @return the class and orbit, or null if nothing fits this planet
+	 */
+	private static Pair<PlanetaryClass, Orbit> newFreeOrbit(Planet planet, Star star, Body body, double maxOrbitMultiplier,
+			double minRadius, double maxRadius, WeightedSampler<PlanetaryClass> classes, DoubleUnaryOperator temperatureCdf,
+			double reference, OrbitValidator validator, double inclinationMult) {
+		double[] free = OrbitSampler.clip(star.freeOrbits(0.0, maxOrbitMultiplier), minRadius, maxRadius);
+		Pair<PlanetaryClass, Double> choice = OrbitSampler.sample(planet.random(), star, free, classes, temperatureCdf, reference);
+		if( null == choice ) {
+			GeneratorMetrics.rejected(body, Rejection.ORBIT_NOT_FREE);
+			return null;
+		}
+		double orbit = choice.second;
+		double eccentricity = PLANET_ECCENTRICITY.sample(planet.random());
+		// Flatten out the eccentricity for low-lying planetary orbits, same as newPlanetaryOrbit()
+		if( orbit / Constant.AU < star.mass() / 1e30 ) {
+			eccentricity *= (orbit / Constant.AU * 1e30 / star.mass());
+		}
+		if( validator.validate(orbit, eccentricity) ) {
+			double inclination = Math.toRadians(inclinationMult * Math.sqrt(-2.0 * Math.log(planet.random().nextDouble())));
+			return Pair.of(choice.first, new Orbit(orbit, eccentricity, inclination));
+		}
+		return null;
+	}
+	
+	/**
+	 * Quick check whether a planet between <code>minMass</code> and <code>maxMass</code> could
+	 * fit anywhere: it needs a possible mass and a free orbit close enough in to clear its
+	 * neighbourhood. Without those, retrying is futile.
+	 * 
+	 * @param free free circular orbits, see {@link Star#freeOrbits(double, double)}
+	 */
+	private static boolean planetPossible(Star star, double[] free, double minMass, double maxMass) {
+		return Satellite.massRangePossible(minMass, maxMass)
+				&& OrbitSampler.clip(free, 0.0, star.sternLevisonRadius(maxMass, 100.0)).length > 0;
+	}
+	
 	/**
 	 * Reset the planet randomiser with a new seed, and apply all data that's generatable without
 	 * potential failure.
 	 * 
 	 * @param planet
 	 */
-	private static void seedPlanet(Planet planet, String name) {
-		planet.seed(planet.seed() + 13377331L);
+	private static void seedPlanet(Planet planet, long seed, String name) {
+		planet.seed(seed);
 		planet.name(name);
-		planet.rotationPeriod(planet.random().nextGaussian() * 60000 + 72000);
+		planet.rotationPeriod(ROTATION_PERIOD.sample(planet.random()));
 	}
 	
-	private static void decorateTerrestialPlanet(Planet planet, double mass, Star star, PlanetaryClass pClass, Orbit planetaryOrbit) {
+	/**
+	 * Place the planet; the rest only needs the planet's own randomiser and the star, so the
+	 * budget can put it off, see {@link Tracker#decorate}.
+	 */
+	private static void decorateTerrestialPlanet(Planet planet, double mass, Star star, PlanetaryClass pClass, Orbit planetaryOrbit, Tracker budget,
+			boolean legacy) {
 		planet.mass(mass);
 		planet.orbit(star, planetaryOrbit);
 
-		Material material = pClass.newMaterial(planet.random(), planetaryOrbit.blackbodyTemp(star));
-		planet.material(material);
-		double density = material.estimateCompressedDensity(mass);
-		planet.diameter(Math.pow(6 * mass / (Math.PI * density), 1.0 / 3.0));
-		planet.planetaryClass(pClass);
-		
-		generateMoons(planet);
-		planet.validateAll();
+		budget.decorate((tracker) -> {
+			Material material = pClass.newMaterial(planet.random(), planetaryOrbit.blackbodyTemp(star), legacy);
+			planet.material(material);
+			double density = material.estimateCompressedDensity(mass);
+			planet.diameter(Math.pow(6 * mass / (Math.PI * density), 1.0 / 3.0));
+			planet.planetaryClass(pClass);
+			
+			generateMoons(planet, tracker, legacy);
+			planet.validateAll();
+		});
 	}
 
 	/**
 	 * Try to generate a new terrestial planet.
 	 */
 	public static Planet newTerrestialPlanet(Star star, String name, double minMass, double maxMass) {
+		return newTerrestialPlanet(star, name, minMass, maxMass, GenerationBudget.UNLIMITED.start(), false);
+	}
+	
+	static Planet newTerrestialPlanet(Star star, String name, double minMass, double maxMass, Tracker budget, boolean legacy) {
 		minMass = Math.max(minMass, Constant.MIN_TERRESTRIAL_MASS);
 		maxMass = Math.min(maxMass, Constant.MAX_TERRESTRIAL_MASS);
 		Planet planet = new Planet(name, false);
 		planet.seed(star.seed() + 47L * star.random().nextInt());
 		
 		int retriesLeft = 1000;
+		int attempts = 0;
+		double[] free = star.freeOrbits(0.0, 1.0);
+		if( !planetPossible(star, free, minMass, maxMass) ) {
+			GeneratorMetrics.failed(Body.TERRESTIAL, attempts);
+			return null;
+		}
+		double reference = terrestialReference(star, free, minMass, maxMass, legacy);
+		if( !legacy && !(reference > 0.0) ) {
+			// No fitting class anywhere left; don't bother
+			GeneratorMetrics.failed(Body.TERRESTIAL, attempts);
+			return null;
+		}
 		
 		do {
-			seedPlanet(planet, name);
-			double mass = Satellite.newMass(planet.random());
-			Orbit planetaryOrbit = newPlanetaryOrbit(planet, star,
+			if( !budget.spend() ) {
+				break;
+			}
+			++ attempts;
+			if( terrestialAttempt(planet, star, planet.seed() + 13377331L, name, minMass, maxMass, reference, budget, legacy) ) {
+				GeneratorMetrics.accepted(Body.TERRESTIAL, attempts);
+				return planet;
+			}
+			-- retriesLeft;
+		} while( retriesLeft > 0 );
+		GeneratorMetrics.failed(Body.TERRESTIAL, attempts);
+		return null;
+	}
+	
+	/** Highest probability for a planet in the mass range to fit, see {@link OrbitSampler#sample}; 0 in legacy mode */
+	private static double terrestialReference(Star star, double[] free, double minMass, double maxMass, boolean legacy) {
+		if( legacy ) {
+			return 0.0;
+		}
+		return Math.max(
+				OrbitSampler.probability(star, OrbitSampler.clip(free, 0.0, star.sternLevisonRadius(minMass, 100.0)),
+						terrestialClasses, OrbitSampler.terrestialTemperatureCdf(minMass)),
+				OrbitSampler.probability(star, OrbitSampler.clip(free, 0.0, star.sternLevisonRadius(maxMass, 100.0)),
+						terrestialClasses, OrbitSampler.terrestialTemperatureCdf(maxMass)));
+	}
+	
+	/**
+	 * One attempt with the given seed. The result only depends on the parameters and the planets
+	 * already around the star, so {@link SystemRecipe}s can repeat it.
+	 * 
+	 * @return true if the planet got accepted and decorated (or queued for it, see {@link Tracker#decorate})
+	 */
+	private static boolean terrestialAttempt(Planet planet, Star star, long seed, String name, double minMass, double maxMass,
+			double reference, Tracker budget, boolean legacy) {
+		seedPlanet(planet, seed, name);
+		double mass = (legacy ? Satellite.newMass(planet.random()) : Satellite.newMass(planet.random(), minMass, maxMass));
+		OrbitValidator validator = (orbit, eccentricity) -> GeneratorMetrics.check(Body.TERRESTIAL, Rejection.ORBIT_NOT_FREE, star.orbitFree(orbit, eccentricity))
+				&& GeneratorMetrics.check(Body.TERRESTIAL, Rejection.STERN_LEVISON, star.sternLevisonParameter(mass, orbit) >= 100.0);
+		Orbit planetaryOrbit;
+		PlanetaryClass pClass;
+		if( legacy ) {
+			planetaryOrbit = newPlanetaryOrbit(planet, star,
 					(blackbodyTemperature) -> {
 						if( blackbodyTemperature < 150 && mass < planet.random().nextDouble() * Constant.MAX_TERRESTRIAL_MASS ) {
 							return Math.max(blackbodyTemperature, GenUtil.lerp(3200.0, 0.0, Math.pow(planet.random().nextDouble(), 0.25)));
@@ -123,16 +274,28 @@ public final class PlanetGenerator {
 							return blackbodyTemperature;
 						}
 					},
-					(orbit, eccentricity) -> star.orbitFree(orbit, eccentricity)
-						&& star.sternLevisonParameter(mass, orbit) >= 100.0, 1.0);
-			PlanetaryClass pClass = newTerrestialClass(planet.random());
-			if( pClass.validTemperature(star, planetaryOrbit) && mass >= minMass && mass <= maxMass ) {
-				decorateTerrestialPlanet(planet, mass, star, pClass, planetaryOrbit);
-				return planet;
-			}
-			-- retriesLeft;
-		} while( retriesLeft > 0 );
-		return null;
+					validator, 1.0);
+			pClass = newTerrestialClass(planet.random(), legacy);
+		} else {
+			Pair<PlanetaryClass, Orbit> choice = newFreeOrbit(planet, star, Body.TERRESTIAL, 1.0, 0.0, star.sternLevisonRadius(mass, 100.0),
+					terrestialClasses, OrbitSampler.terrestialTemperatureCdf(mass), reference, validator, 1.0);
+			planetaryOrbit = (null != choice ? choice.second : null);
+			pClass = (null != choice ? choice.first : null);
+		}
+		if( null != planetaryOrbit
+				&& GeneratorMetrics.check(Body.TERRESTIAL, Rejection.TEMPERATURE, pClass.validTemperature(star, planetaryOrbit))
+				&& GeneratorMetrics.check(Body.TERRESTIAL, Rejection.MASS_RANGE, mass >= minMass && mass <= maxMass) ) {
+			decorateTerrestialPlanet(planet, mass, star, pClass, planetaryOrbit, budget, legacy);
+			return true;
+		}
+		return false;
+	}
+	
+	/** Repeat the accepted attempt of a recipe; null if it doesn't get accepted this time */
+	static Planet replayTerrestialPlanet(Star star, long seed, double minMass, double maxMass, Tracker budget, boolean legacy) {
+		Planet planet = new Planet(null, false);
+		double reference = terrestialReference(star, star.freeOrbits(0.0, 1.0), minMass, maxMass, legacy);
+		return (terrestialAttempt(planet, star, seed, null, minMass, maxMass, reference, budget, legacy) ? planet : null);
 	}
 	
 	public static Planet newTerrestialPlanet(Star star, long seed) {
@@ -148,10 +311,15 @@ public final class PlanetGenerator {
 	 * much as possible.
 	 */
 	public static Planet newTerrestialPlanet(Star star, String name, long seed) {
+		return newTerrestialPlanet(star, name, seed, false);
+	}
+	
+	/** Create a terrestial planet based on a supplied seed, see {@link GenerationOptions#legacy()} for the sampling mode */
+	public static Planet newTerrestialPlanet(Star star, String name, long seed, boolean legacy) {
 		Planet planet = new Planet(name, false);
 		planet.seed(seed);
 		planet.name(name);
-		planet.rotationPeriod(planet.random().nextGaussian() * 60000 + 72000);
+		planet.rotationPeriod(ROTATION_PERIOD.sample(planet.random()));
 		double mass = Satellite.newMass(planet.random());
 		Orbit planetaryOrbit = newPlanetaryOrbit(planet, star,
 				(blackbodyTemperature) -> {
@@ -162,38 +330,97 @@ public final class PlanetGenerator {
 					}
 				},
 				(orbit, eccentricity) -> true, 1.0);
-		PlanetaryClass pClass = newTerrestialClass(planet.random());
-		decorateTerrestialPlanet(planet, mass, star, pClass, planetaryOrbit);
+		PlanetaryClass pClass = newTerrestialClass(planet.random(), legacy);
+		decorateTerrestialPlanet(planet, mass, star, pClass, planetaryOrbit, GenerationBudget.UNLIMITED.start(), legacy);
 		return planet;
 	}
 	
-	private static void decorateGasgiant(Planet planet, double mass, Star star, PlanetaryClass pClass, Orbit planetaryOrbit) {
+	/** Place the gas giant, and decorate it like {@link #decorateTerrestialPlanet} does */
+	private static void decorateGasgiant(Planet planet, double mass, Star star, PlanetaryClass pClass, Orbit planetaryOrbit, Tracker budget,
+			boolean legacy) {
 		planet.mass(mass);
 		planet.orbit(star, planetaryOrbit);
 
-		// Create planetary material
-		Material material = pClass.newMaterial(planet.random(), planetaryOrbit.blackbodyTemp(star));
-		planet.material(material);
-		// We need a proper estimate for gas giants here
-		// double density = material.estimateCompressedDensity(mass);
-		planet.diameter(Math.pow(6 * mass / (Math.PI * material.uncompressedDensity), 1.0 / 3.0));
-		planet.planetaryClass(pClass);
+		budget.decorate((tracker) -> {
+			// Create planetary material
+			Material material = pClass.newMaterial(planet.random(), planetaryOrbit.blackbodyTemp(star), legacy);
+			planet.material(material);
+			// We need a proper estimate for gas giants here
+			// double density = material.estimateCompressedDensity(mass);
+			planet.diameter(Math.pow(6 * mass / (Math.PI * material.uncompressedDensity), 1.0 / 3.0));
+			planet.planetaryClass(pClass);
 
-		generateMoons(planet);
-		planet.validateAll();
+			generateMoons(planet, tracker, legacy);
+			planet.validateAll();
+		});
 	}
 
 	/** Try to generate a new gas giant */
 	public static Planet newGasgiant(Star star, String name, double minMass, double maxMass) {
+		return newGasgiant(star, name, minMass, maxMass, GenerationBudget.UNLIMITED.start(), false);
+	}
+	
+	static Planet newGasgiant(Star star, String name, double minMass, double maxMass, Tracker budget, boolean legacy) {
 		Planet planet = new Planet(name, false);
 		planet.seed(star.seed() + 47L * star.random().nextInt());
 		
 		int retriesLeft = 100;
+		int attempts = 0;
+		double[] free = star.freeOrbits(0.0, 1.0);
+		if( !planetPossible(star, free, minMass, maxMass) ) {
+			GeneratorMetrics.failed(Body.GASGIANT, attempts);
+			return null;
+		}
+		double reference = gasgiantReference(star, free, minMass, maxMass, legacy);
+		if( !legacy && !(reference > 0.0) ) {
+			// No fitting class anywhere left; don't bother
+			GeneratorMetrics.failed(Body.GASGIANT, attempts);
+			return null;
+		}
 		
 		do {
-			seedPlanet(planet, name);
-			double mass = Satellite.newMass(planet.random());
-			Orbit planetaryOrbit = newPlanetaryOrbit(planet, star,
+			if( !budget.spend() ) {
+				break;
+			}
+			++ attempts;
+			if( gasgiantAttempt(planet, star, planet.seed() + 13377331L, name, minMass, maxMass, reference, budget, legacy) ) {
+				GeneratorMetrics.accepted(Body.GASGIANT, attempts);
+				return planet;
+			}
+			-- retriesLeft;
+		} while( retriesLeft > 0 );
+		GeneratorMetrics.failed(Body.GASGIANT, attempts);
+		return null;
+	}
+	
+	/** Highest probability for a planet in the mass range to fit, see {@link OrbitSampler#sample}; 0 in legacy mode */
+	private static double gasgiantReference(Star star, double[] free, double minMass, double maxMass, boolean legacy) {
+		if( legacy ) {
+			return 0.0;
+		}
+		return Math.max(
+				OrbitSampler.probability(star, OrbitSampler.clip(free, 0.0, star.sternLevisonRadius(minMass, 100.0)),
+						gasgiantClasses, OrbitSampler.gasgiantTemperatureCdf(minMass)),
+				OrbitSampler.probability(star, OrbitSampler.clip(free, 0.0, star.sternLevisonRadius(maxMass, 100.0)),
+						gasgiantClasses, OrbitSampler.gasgiantTemperatureCdf(maxMass)));
+	}
+	
+	/**
+	 * One attempt with the given seed. The result only depends on the parameters and the planets
+	 * already around the star, so {@link SystemRecipe}s can repeat it.
+	 * 
+	 * @return true if the planet got accepted and decorated (or queued for it, see {@link Tracker#decorate})
+	 */
+	private static boolean gasgiantAttempt(Planet planet, Star star, long seed, String name, double minMass, double maxMass,
+			double reference, Tracker budget, boolean legacy) {
+		seedPlanet(planet, seed, name);
+		double mass = (legacy ? Satellite.newMass(planet.random()) : Satellite.newMass(planet.random(), minMass, maxMass));
+		OrbitValidator validator = (orbit, eccentricity) -> GeneratorMetrics.check(Body.GASGIANT, Rejection.ORBIT_NOT_FREE, star.orbitFree(orbit, eccentricity))
+				&& GeneratorMetrics.check(Body.GASGIANT, Rejection.STERN_LEVISON, star.sternLevisonParameter(mass, orbit) >= 100.0);
+		Orbit planetaryOrbit;
+		PlanetaryClass pClass;
+		if( legacy ) {
+			planetaryOrbit = newPlanetaryOrbit(planet, star,
 					(blackbodyTemperature) -> {
 						if( blackbodyTemperature > 150 && mass * planet.random().nextDouble() > Constant.MAX_TERRESTRIAL_MASS ) {
 							return GenUtil.lerp(150.0, 0.0, Math.pow(Math.min(planet.random().nextDouble(), planet.random().nextDouble()), 0.2));
@@ -201,16 +428,28 @@ public final class PlanetGenerator {
 							return blackbodyTemperature;
 						}
 					},
-					(orbit, eccentricity) -> star.orbitFree(orbit, eccentricity)
-						&& star.sternLevisonParameter(mass, orbit) >= 100.0, 1.0);
-			PlanetaryClass pClass = newGasgiantClass(planet.random());
-			if( pClass.validTemperature(star, planetaryOrbit) && mass >= minMass && mass <= maxMass ) {
-				decorateGasgiant(planet, mass, star, pClass, planetaryOrbit);
-				return planet;
-			}
-			-- retriesLeft;
-		} while( retriesLeft > 0 );
-		return null;
+					validator, 1.0);
+			pClass = newGasgiantClass(planet.random(), legacy);
+		} else {
+			Pair<PlanetaryClass, Orbit> choice = newFreeOrbit(planet, star, Body.GASGIANT, 1.0, 0.0, star.sternLevisonRadius(mass, 100.0),
+					gasgiantClasses, OrbitSampler.gasgiantTemperatureCdf(mass), reference, validator, 1.0);
+			planetaryOrbit = (null != choice ? choice.second : null);
+			pClass = (null != choice ? choice.first : null);
+		}
+		if( null != planetaryOrbit
+				&& GeneratorMetrics.check(Body.GASGIANT, Rejection.TEMPERATURE, pClass.validTemperature(star, planetaryOrbit))
+				&& GeneratorMetrics.check(Body.GASGIANT, Rejection.MASS_RANGE, mass >= minMass && mass <= maxMass) ) {
+			decorateGasgiant(planet, mass, star, pClass, planetaryOrbit, budget, legacy);
+			return true;
+		}
+		return false;
+	}
+	
+	/** Repeat the accepted attempt of a recipe; null if it doesn't get accepted this time */
+	static Planet replayGasgiant(Star star, long seed, double minMass, double maxMass, Tracker budget, boolean legacy) {
+		Planet planet = new Planet(null, false);
+		double reference = gasgiantReference(star, star.freeOrbits(0.0, 1.0), minMass, maxMass, legacy);
+		return (gasgiantAttempt(planet, star, seed, null, minMass, maxMass, reference, budget, legacy) ? planet : null);
 	}
 	
 	public static Planet newGasgiant(Star star, long seed) {
@@ -218,10 +457,15 @@ public final class PlanetGenerator {
 	}
 
 	public static Planet newGasgiant(Star star, String name, long seed) {
+		return newGasgiant(star, name, seed, false);
+	}
+	
+	/** Create a gas giant based on a supplied seed, see {@link GenerationOptions#legacy()} for the sampling mode */
+	public static Planet newGasgiant(Star star, String name, long seed, boolean legacy) {
 		Planet planet = new Planet(name, false);
 		planet.seed(seed);
 		planet.name(name);
-		planet.rotationPeriod(planet.random().nextGaussian() * 60000 + 72000);
+		planet.rotationPeriod(ROTATION_PERIOD.sample(planet.random()));
 		double mass = Satellite.newMass(planet.random());
 		Orbit planetaryOrbit = newPlanetaryOrbit(planet, star,
 				(blackbodyTemperature) -> {
@@ -232,36 +476,101 @@ public final class PlanetGenerator {
 					}
 				},
 				(orbit, eccentricity) -> true, 1.0);
-		PlanetaryClass pClass = newGasgiantClass(planet.random());
-		decorateGasgiant(planet, mass, star, pClass, planetaryOrbit);
+		PlanetaryClass pClass = newGasgiantClass(planet.random(), legacy);
+		decorateGasgiant(planet, mass, star, pClass, planetaryOrbit, GenerationBudget.UNLIMITED.start(), legacy);
 		return planet;
 	}
 	
+	/** Moon class retries; only very light or heavy moons at the edge of the fitting temperatures need many */
+	private static final int MOON_RETRIES = 10000;
+	
+	/** Can any moon class fit the given temperature? Otherwise, newMoon() would never find one. */
+	private static boolean moonClassPossible(double temperature) {
+		return anyClassFits(terrestialClasses, temperature) || anyClassFits(planetoidClasses, temperature);
+	}
+	
+	private static boolean anyClassFits(WeightedSampler<PlanetaryClass> classes, double temperature) {
+		for( int i = 0; i < classes.size(); ++ i ) {
+			if( classes.weight(i) > 0 && classes.value(i).validTemperature(temperature) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	private static final RealDistribution moonDistribution = new BetaDistribution(3.0, 9.0);
+	/** Moon orbits, tabulated; see {@link InverseCdfTable} for the error */
+	private static final InverseCdfTable moonOrbits = new InverseCdfTable(moonDistribution, 4096);
+	
+	/**
+	 * Try to generate a new moon.
+	 * 
+	 * @return the moon, or null if no moon class fits the temperature of the planet's orbit
+	 */
+	public static Moon newMoon(Star star, Planet planet, @NonNull DoubleSampler massGenerator, String name) {
+		return newMoon(star, planet, massGenerator, name, -1, GenerationBudget.UNLIMITED.start(), false);
+	}
 	
-	public static Moon newMoon(Star star, Planet planet, Function<Random, Double> massGenerator, String name) {
+	/**
+	 * Generate the moon for the given slot of a finished planet or planetoid, or null if no
+	 * moon class fits. It only depends on the planet and the slot, so the moons can be generated
+	 * in any order, in parallel or one at a time. Outside of {@link GenerationOptions#legacy() legacy mode},
+	 * these are the moons the planet gets when generated, apart from the numbering in the names.
+	 * 
+	 * @see #moonSlots(Planet)
+	 */
+	public static Moon newMoon(@NonNull Planet planet, int slot) {
+		if( slot < 0 ) {
+			throw new IllegalArgumentException("Negative moon slot: " + slot);
+		}
+		return newMoon(planet.parent(), planet, moonMassGenerator(planet), planet.name() + " " + GenUtil.romanNumber(slot + 1),
+				slot, GenerationBudget.UNLIMITED.start(), false);
+	}
+	
+	/**
+	 * @param slot the moon's slot, to seed it from the planet's seed and use its own randomiser for
+	 *     everything; or negative to take the seed and orbit from the planet's randomiser
+	 */
+	private static Moon newMoon(Star star, Planet planet, DoubleSampler massGenerator, String name, int slot, Tracker budget, boolean legacy) {
+		if( !moonClassPossible(planet.orbit().blackbodyTemp(star)) ) {
+			// Would never find a class
+			GeneratorMetrics.failed(Body.MOON, 0);
+			return null;
+		}
+		if( !budget.spend() ) {
+			GeneratorMetrics.failed(Body.MOON, 0);
+			return null;
+		}
 		if( null == name ) {
 			name = planet.name() + " " + GenUtil.romanNumber(planet.moons.size() + 1);
 		}
 		Moon moon = new Moon(name);
 		
 		// Pick planetary model
-		moon.seed(planet.seed() + planet.random().nextInt());
-		double mass = massGenerator.apply(moon.random());
+		moon.seed(slot >= 0 ? GenUtil.deriveSeed(planet.seed(), slot) : planet.seed() + planet.random().nextInt());
+		Random orbitRandom = (slot >= 0 ? moon.random() : planet.random());
+		double mass = massGenerator.sample(moon.random());
 		moon.mass(mass);
 		boolean minor = mass < Constant.MIN_TERRESTRIAL_MASS;
-		PlanetaryClass pClass = minor ? newPlanetoidClass(moon.random()) : newTerrestialClass(moon.random());
-		while( !pClass.validTemperature(star, planet.orbit()) ) {
+		PlanetaryClass pClass = minor ? newPlanetoidClass(moon.random(), legacy) : newTerrestialClass(moon.random(), legacy);
+		int attempts = 1;
+		while( !GeneratorMetrics.check(Body.MOON, Rejection.TEMPERATURE, pClass.validTemperature(star, planet.orbit())) ) {
+			if( attempts >= MOON_RETRIES || !budget.spend() ) {
+				GeneratorMetrics.failed(Body.MOON, attempts);
+				return null;
+			}
+			++ attempts;
 			// Try with a different seed
 			moon.seed(moon.seed() + 1337);
-			mass = massGenerator.apply(moon.random());
+			mass = massGenerator.sample(moon.random());
 			moon.mass(mass);
 			minor = mass < Constant.MIN_TERRESTRIAL_MASS;
-			pClass = minor ? newPlanetoidClass(moon.random()) : newTerrestialClass(moon.random());
+			pClass = minor ? newPlanetoidClass(moon.random(), legacy) : newTerrestialClass(moon.random(), legacy);
 		}
+		GeneratorMetrics.accepted(Body.MOON, attempts);
 
 		// Create planetary material
-		Material material = pClass.newMaterial(moon.random(), planet.orbit().blackbodyTemp(star));
+		Material material = pClass.newMaterial(moon.random(), planet.orbit().blackbodyTemp(star), legacy);
 		double density = material.estimateCompressedDensity(mass);
 		double diameter = Math.pow(6 * mass / (Math.PI * density), 1.0 / 3.0);
 		
@@ -269,9 +578,11 @@ public final class PlanetGenerator {
 		// This is almost never more than 1.0 and practically never more than 2.0
 		double rocheLimit = Math.max(planet.diameter() * 0.55, Constant.ROCHE_LIMIT_RIGID * diameter / 2.0 * Math.pow(planet.mass() / mass, 1.0 / 3.0));
 		// beta distribution with a=3, b=9 between the Roche limit and Hill's radius
-		double orbit = GenUtil.lerp(rocheLimit, planet.hillsRadius(), moonDistribution.inverseCumulativeProbability(planet.random().nextDouble()));
-		double rotationPeriod = moon.random().nextGaussian() * 60000 + 72000;
-		double eccentricity = Math.pow(planet.random().nextDouble(), 6.0) / 1.01;
+		double placement = orbitRandom.nextDouble();
+		placement = (legacy ? moonDistribution.inverseCumulativeProbability(placement) : moonOrbits.inverse(placement));
+		double orbit = GenUtil.lerp(rocheLimit, planet.hillsRadius(), placement);
+		double rotationPeriod = ROTATION_PERIOD.sample(moon.random());
+		double eccentricity = MOON_ECCENTRICITY.sample(orbitRandom);
 		// Limit eccentricity for anything which would dip below the Roche limit
 		eccentricity = Math.min(eccentricity, 1.0 - rocheLimit / orbit);
 		// Flatten out the eccentricity for low-lying orbits (below 1.99 AU for the Sun)
@@ -280,7 +591,7 @@ public final class PlanetGenerator {
 			eccentricity *= (orbit * 10000.0 * Constant.YOTTAGRAM / planet.mass());
 		}
 		
-		moon.orbit(planet, new Orbit(orbit, eccentricity, Math.abs(planet.random().nextGaussian() / 6 / Math.PI)));
+		moon.orbit(planet, new Orbit(orbit, eccentricity, Math.abs(orbitRandom.nextGaussian() / 6 / Math.PI)));
 		moon.rotationPeriod(rotationPeriod);
 		moon.diameter(diameter);
 		moon.material(material);
@@ -296,39 +607,49 @@ public final class PlanetGenerator {
 	 * 
 	 * @param planetoid
 	 */
-	private static void seedPlanetoid(Planet planetoid, String name) {
-		planetoid.seed(planetoid.seed() + 27331L);
+	private static void seedPlanetoid(Planet planetoid, long seed, String name) {
+		planetoid.seed(seed);
 		planetoid.name(null != name ? name : planetoidName(planetoid.random()));
 		planetoid.explicitName(true);
-		planetoid.rotationPeriod(planetoid.random().nextGaussian() * 60000 + 72000);
+		planetoid.rotationPeriod(ROTATION_PERIOD.sample(planetoid.random()));
 	}
 	
 	/**
 	 * Add remaining data to the planetoid after we got one with the right orbital params
-	 * and planetary class
+	 * and planetary class; the moons only if there is a budget for them
 	 * 
 	 * @param planetoid
 	 */
-	private static void decoratePlanetoid(Planet planet, double mass, Star star, PlanetaryClass pClass, Orbit planetoidOrbit) {
+	private static void decoratePlanetoid(Planet planet, double mass, Star star, PlanetaryClass pClass, Orbit planetoidOrbit, Tracker budget,
+			boolean legacy) {
 		planet.mass(mass);
+		planet.orbit(star, planetoidOrbit);
 		
-		Material material = pClass.newMaterial(planet.random(), planetoidOrbit.blackbodyTemp(star));
+		if( null == budget ) {
+			decoratePlanetoid(planet, mass, star, pClass, planetoidOrbit, legacy);
+		} else {
+			budget.decorate((tracker) -> {
+				decoratePlanetoid(planet, mass, star, pClass, planetoidOrbit, legacy);
+				generateMoons(planet, tracker, legacy);
+			});
+		}
+	}
+	
+	private static void decoratePlanetoid(Planet planet, double mass, Star star, PlanetaryClass pClass, Orbit planetoidOrbit, boolean legacy) {
+		Material material = pClass.newMaterial(planet.random(), planetoidOrbit.blackbodyTemp(star), legacy);
 		double density = material.estimateCompressedDensity(mass);
 		double diameter = Math.pow(6 * mass / (Math.PI * density), 1.0 / 3.0);
 
-		planet.orbit(star, planetoidOrbit);
 		planet.diameter(diameter);
 		planet.material(material);
 		planet.planetaryClass(pClass);
 		
 		assert mass >= Constant.MIN_TERRESTRIAL_MASS || pClass.validClass(planet);
-		
-		generateMoons(planet);
 	}
 	
-	private static Function<Random, Double> DEFAULT_PLANETOID_MASSGENERATOR =
-			(rnd) -> GenUtil.lerp(Constant.MIN_TERRESTRIAL_MASS / 1000, Constant.MIN_TERRESTRIAL_MASS * 10,
-					Math.pow(Math.min(rnd.nextDouble(), rnd.nextDouble()), 6.0));
+	private static final double PLANETOID_MIN_MASS = Constant.MIN_TERRESTRIAL_MASS / 1000;
+	private static final DoubleSampler DEFAULT_PLANETOID_MASSGENERATOR =
+			DoubleSampler.powerOfMin(PLANETOID_MIN_MASS, Constant.MIN_TERRESTRIAL_MASS * 10, 6.0);
 	
 	public static Planet newPlanetoid(Star star, double maxMass) {
 		return newPlanetoid(star, maxMass, (String)null);
@@ -336,49 +657,143 @@ public final class PlanetGenerator {
 	
 	public static Planet newPlanetoid(Star star, double maxMass, String name)
 	{
-		Function<Random, Double> massGenerator = DEFAULT_PLANETOID_MASSGENERATOR;
+		return newPlanetoid(star, maxMass, name, GenerationBudget.UNLIMITED.start(), false);
+	}
+	
+	static Planet newPlanetoid(Star star, double maxMass, String name, Tracker budget, boolean legacy)
+	{
+		return newPlanetoid(star, maxMass, name, budget, true, legacy);
+	}
+	
+	/**
+	 * Pick a planetoid like {@link #newPlanetoid(Star, double, String)} does, but without its
+	 * moons; {@link #materialisePlanetoid} builds the full one later on.
+	 */
+	static Planet probePlanetoid(Star star, double maxMass, Tracker budget, boolean legacy)
+	{
+		return newPlanetoid(star, maxMass, null, budget, false, legacy);
+	}
+	
+	private static Planet newPlanetoid(Star star, double maxMass, String name, Tracker budget, boolean decorate, boolean legacy)
+	{
 		Planet planet = new Planet(null, true);
 		planet.seed(star.seed() + 47L * star.random().nextInt());
 		
 		// Trying to get a free orbit and a valid planetoid class for it
 		int orbitRetriesLeft = 100;
+		int attempts = 0;
+		double[] free = planetoidOrbits(star);
+		if( maxMass < PLANETOID_MIN_MASS || free.length == 0 ) {
+			// Too light, or no space left; don't bother
+			GeneratorMetrics.failed(Body.PLANETOID, attempts);
+			return null;
+		}
+		double reference = planetoidReference(star, free, legacy);
+		if( !legacy && !(reference > 0.0) ) {
+			// No fitting class anywhere left
+			GeneratorMetrics.failed(Body.PLANETOID, attempts);
+			return null;
+		}
 		
 		// Initial data
 		do {
-			seedPlanetoid(planet, name);
-			
-			double mass = massGenerator.apply(planet.random());
-			Orbit planetoidOrbit = newPlanetaryOrbit(planet, star, (blackbodyTemperature) -> blackbodyTemperature / 2.5,
-					(orbit, eccentricity) -> star.orbitFree(orbit, eccentricity, 2.0)
-					&& star.sternLevisonParameter(mass, orbit) <= 0.01, 5.0);
-			PlanetaryClass pClass = newPlanetoidClass(planet.random());
-			
-			if( pClass.validTemperature(star, planetoidOrbit) && mass <= maxMass ) {
-				decoratePlanetoid(planet, mass, star, pClass, planetoidOrbit);
+			if( !budget.spend() ) {
+				break;
+			}
+			++ attempts;
+			if( planetoidAttempt(planet, star, planet.seed() + 27331L, name, maxMass, reference, decorate ? budget : null, legacy) ) {
+				GeneratorMetrics.accepted(Body.PLANETOID, attempts);
 				return planet;
 			}
 			-- orbitRetriesLeft;
 		} while( orbitRetriesLeft > 0 );
 		
+		GeneratorMetrics.failed(Body.PLANETOID, attempts);
 		return null;
 	}
+	
+	/** Free orbits far enough out for the lightest planetoid to not clear its neighbourhood; it has the best chances */
+	private static double[] planetoidOrbits(Star star) {
+		return OrbitSampler.clip(star.freeOrbits(0.0, 2.0), star.sternLevisonRadius(PLANETOID_MIN_MASS, 0.01), Double.POSITIVE_INFINITY);
+	}
+	
+	/** Highest probability for a planetoid to fit, see {@link OrbitSampler#sample}; 0 in legacy mode */
+	private static double planetoidReference(Star star, double[] free, boolean legacy) {
+		return (legacy ? 0.0 : OrbitSampler.probability(star, free, planetoidClasses, OrbitSampler::planetoidTemperatureCdf));
+	}
+	
+	/** One attempt with the given seed, see {@link #terrestialAttempt}; no moons without a budget */
+	private static boolean planetoidAttempt(Planet planet, Star star, long seed, String name, double maxMass, double reference, Tracker budget,
+			boolean legacy) {
+		seedPlanetoid(planet, seed, name);
+		
+		double mass = DEFAULT_PLANETOID_MASSGENERATOR.sample(planet.random());
+		OrbitValidator validator = (orbit, eccentricity) -> GeneratorMetrics.check(Body.PLANETOID, Rejection.ORBIT_NOT_FREE, star.orbitFree(orbit, eccentricity, 2.0))
+				&& GeneratorMetrics.check(Body.PLANETOID, Rejection.STERN_LEVISON, star.sternLevisonParameter(mass, orbit) <= 0.01);
+		Orbit planetoidOrbit;
+		PlanetaryClass pClass;
+		if( legacy ) {
+			planetoidOrbit = newPlanetaryOrbit(planet, star, (blackbodyTemperature) -> blackbodyTemperature / 2.5, validator, 5.0);
+			pClass = newPlanetoidClass(planet.random(), legacy);
+		} else {
+			Pair<PlanetaryClass, Orbit> choice = newFreeOrbit(planet, star, Body.PLANETOID, 2.0, star.sternLevisonRadius(mass, 0.01), Double.POSITIVE_INFINITY,
+					planetoidClasses, OrbitSampler::planetoidTemperatureCdf, reference, validator, 5.0);
+			planetoidOrbit = (null != choice ? choice.second : null);
+			pClass = (null != choice ? choice.first : null);
+		}
+		
+		if( null != planetoidOrbit
+				&& GeneratorMetrics.check(Body.PLANETOID, Rejection.TEMPERATURE, pClass.validTemperature(star, planetoidOrbit))
+				&& GeneratorMetrics.check(Body.PLANETOID, Rejection.MASS_RANGE, mass <= maxMass) ) {
+			decoratePlanetoid(planet, mass, star, pClass, planetoidOrbit, budget, legacy);
+			return true;
+		}
+		return false;
+	}
+	
+	/** Repeat the accepted attempt of a recipe; null if it doesn't get accepted this time */
+	static Planet replayPlanetoid(Star star, long seed, double maxMass, Tracker budget, boolean legacy) {
+		Planet planet = new Planet(null, true);
+		double reference = planetoidReference(star, planetoidOrbits(star), legacy);
+		return (planetoidAttempt(planet, star, seed, null, maxMass, reference, budget, legacy) ? planet : null);
+	}
 
+	/** Highest probability for a planetoid to fit around the star as it is now, for {@link #materialisePlanetoid} */
+	static double planetoidReference(Star star, boolean legacy) {
+		return planetoidReference(star, planetoidOrbits(star), legacy);
+	}
+	
+	/**
+	 * Build the planetoid {@link #probePlanetoid} picked, from its seed; it gets the same data
+	 * as if {@link #newPlanetoid(Star, double, String)} had built it right away. Its moons don't
+	 * count against any budget.
+	 */
+	static Planet materialisePlanetoid(Star star, long seed, double maxMass, double reference, boolean legacy) {
+		Planet planet = new Planet(null, true);
+		return (planetoidAttempt(planet, star, seed, null, maxMass, reference, GenerationBudget.UNLIMITED.start(), legacy) ? planet : null);
+	}
+	
 	public static Planet newPlanetoid(Star star, long seed) {
 		return newPlanetoid(star, (String)null, seed);
 	}
 	
 	public static Planet newPlanetoid(Star star, String name, long seed) {
-		Function<Random, Double> massGenerator = DEFAULT_PLANETOID_MASSGENERATOR;
+		return newPlanetoid(star, name, seed, false);
+	}
+	
+	/** Create a planetoid based on a supplied seed, see {@link GenerationOptions#legacy()} for the sampling mode */
+	public static Planet newPlanetoid(Star star, String name, long seed, boolean legacy) {
+		DoubleSampler massGenerator = DEFAULT_PLANETOID_MASSGENERATOR;
 		Planet planet = new Planet(null, true);
 		planet.seed(seed);
 		planet.name(null != name ? name : planetoidName(planet.random()));
 		planet.explicitName(true);
-		planet.rotationPeriod(planet.random().nextGaussian() * 60000 + 72000);
-		double mass = massGenerator.apply(planet.random());
+		planet.rotationPeriod(ROTATION_PERIOD.sample(planet.random()));
+		double mass = massGenerator.sample(planet.random());
 		Orbit planetoidOrbit = newPlanetaryOrbit(planet, star, (blackbodyTemperature) -> blackbodyTemperature / 2.5,
 				(orbit, eccentricity) -> true, 5.0);
-		PlanetaryClass pClass = newPlanetoidClass(planet.random());
-		decoratePlanetoid(planet, mass, star, pClass, planetoidOrbit);
+		PlanetaryClass pClass = newPlanetoidClass(planet.random(), legacy);
+		decoratePlanetoid(planet, mass, star, pClass, planetoidOrbit, GenerationBudget.UNLIMITED.start(), legacy);
 		return planet;
 	}
 	
@@ -399,103 +814,21 @@ public final class PlanetGenerator {
 		return name;
 	}
 	
-	private static PlanetaryClass newGasgiantClass(Random rnd) {
-		int randomSC = rnd.nextInt(maxGasgiantClasses) + 1;
-		return gasgiantClassesDistribution.lowerEntry(randomSC).getValue();
-	}
+	/** Class weights, see {@link GenUtil#weights} for how to replace them */
+	private static final WeightedSampler<PlanetaryClass> gasgiantClasses = GenUtil.weights("gasgiantclasses", PlanetaryClass::forName);
+	private static final WeightedSampler<PlanetaryClass> terrestialClasses = GenUtil.weights("terrestialclasses", PlanetaryClass::forName);
+	private static final WeightedSampler<PlanetaryClass> planetoidClasses = GenUtil.weights("planetoidclasses", PlanetaryClass::forName);
 	
-	private static final List<Pair<PlanetaryClass, Integer>> gasgiantClassesList = new ArrayList<Pair<PlanetaryClass,Integer>>(5);
-	private static final TreeMap<Integer, PlanetaryClass> gasgiantClassesDistribution = new TreeMap<Integer, PlanetaryClass>();
-	private static final int maxGasgiantClasses;
-
-	static {
-		// Weights for gas giant classes
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GAS_GIANT_I, 30));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GAS_GIANT_II, 20));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GAS_GIANT_III, 10));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GAS_GIANT_IV, 5));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GAS_GIANT_V, 2));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_GIANT_I, 20));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_GIANT_II, 10));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_GIANT_III, 5));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_GIANT_IV, 2));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_GIANT_V, 1));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.ICE_GIANT, 40));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_ICE_GIANT, 20));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HOT_PUFFY_GIANT, 7));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.COLD_PUFFY_GIANT, 4));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_COLD_PUFFY_GIANT, 2));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GAS_DWARF, 50));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELLIUM_GAS_DWARF, 20));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.FROZEN_GAS_DWARF, 15));
-		gasgiantClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.BOILING_GIANT, 1));
-
-		int count = 0;
-		for( Pair<PlanetaryClass, Integer> spectral : gasgiantClassesList) {
-			gasgiantClassesDistribution.put(count, spectral.first);
-			count += spectral.second;
-		}
-		maxGasgiantClasses = count;
-	}
-	
-	private static PlanetaryClass newTerrestialClass(Random rnd) {
-		int randomSC = rnd.nextInt(maxTerrestialClasses) + 1;
-		return terrestialClassesDistribution.lowerEntry(randomSC).getValue();
+	private static PlanetaryClass newGasgiantClass(Random rnd, boolean legacy) {
+		return (legacy ? gasgiantClasses.sampleLegacy(rnd) : gasgiantClasses.sample(rnd));
 	}
 	
-	private static final List<Pair<PlanetaryClass, Integer>> terrestialClassesList = new ArrayList<Pair<PlanetaryClass,Integer>>();
-	private static final TreeMap<Integer, PlanetaryClass> terrestialClassesDistribution = new TreeMap<Integer, PlanetaryClass>();
-	private static final int maxTerrestialClasses;
-
-	static {
-		// Weights for planetoid classes
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.DESERT, 10));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.EARTH_LIKE, 10));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GREENHOUSE, 10));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HELL, 5));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.AIRLESS, 25));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.DRY_ROCK, 20));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.ROCKY, 10));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.HIGH_PRESSURE, 5));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.EXTREME_GREENHOUSE, 2));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.WATER_ICE, 10));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.AMMONIA_ICE, 20));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.METHANE_ICE, 25));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.IRON, 5));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.LAVA, 2));
-		terrestialClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.OCEAN, 5));
-
-		int count = 0;
-		for( Pair<PlanetaryClass, Integer> spectral : terrestialClassesList) {
-			terrestialClassesDistribution.put(count, spectral.first);
-			count += spectral.second;
-		}
-		maxTerrestialClasses = count;
+	private static PlanetaryClass newTerrestialClass(Random rnd, boolean legacy) {
+		return (legacy ? terrestialClasses.sampleLegacy(rnd) : terrestialClasses.sample(rnd));
 	}
 	
-	private static PlanetaryClass newPlanetoidClass(Random rnd) {
-		int randomSC = rnd.nextInt(maxPlanetoidClasses) + 1;
-		return planetoidClassesDistribution.lowerEntry(randomSC).getValue();
-	}
-	
-	private static final List<Pair<PlanetaryClass, Integer>> planetoidClassesList = new ArrayList<Pair<PlanetaryClass,Integer>>(5);
-	private static final TreeMap<Integer, PlanetaryClass> planetoidClassesDistribution = new TreeMap<Integer, PlanetaryClass>();
-	private static final int maxPlanetoidClasses;
-
-	static {
-		// Weights for planetoid classes
-		planetoidClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.SILICATE_PLANETOID, 200));
-		planetoidClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.METALLIC_PLANETOID, 10));
-		planetoidClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.ICE_PLANETOID, 50));
-		planetoidClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.GRAVEL_PLANETOID, 5));
-		planetoidClassesList.add(Pair.<PlanetaryClass, Integer>of(PlanetaryClass.CARBONACEOUS_PLANETOID, 2));
-		
-		int count = 0;
-		for( Pair<PlanetaryClass, Integer> spectral : planetoidClassesList) {
-			planetoidClassesDistribution.put(count, spectral.first);
-			count += spectral.second;
-		}
-		maxPlanetoidClasses = count;
+	private static PlanetaryClass newPlanetoidClass(Random rnd, boolean legacy) {
+		return (legacy ? planetoidClasses.sampleLegacy(rnd) : planetoidClasses.sample(rnd));
 	}
 	
 	@FunctionalInterface
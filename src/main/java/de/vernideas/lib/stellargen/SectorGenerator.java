@@ -0,0 +1,170 @@
+package de.vernideas.lib.stellargen;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.Universe;
+import de.vernideas.space.data.VectorD3D;
+import lombok.NonNull;
+
+/**
+ * Generator for numbered stars of a universe.
+ * <p>
+ * Spectral class, seed and position of star number <i>n</i> are derived by hashing the
+ * universe seed and <i>n</i>; the shared universe randomiser is never used. Every star can
+ * be built on its own, and a batch of them comes out bit-identical no matter how many
+ * threads work on it.
+ */
+public final class SectorGenerator {
+	/** Stars generated per fork/join leaf task */
+	private static final int BATCH_SIZE = 8;
+
+	/** Randomiser for the star-level parameters of star number <code>index</code> */
+	static Random indexRandom(Universe u, long index) {
+		return new Random(GenUtil.deriveSeed(u.seed, index));
+	}
+
+	/** Spectral class declaration of star number <code>index</code> */
+	public static String spectralClass(@NonNull Universe u, long index) {
+		return spectralClass(u, index, false);
+	}
+
+	/** Spectral class declaration of star number <code>index</code> in the given sampling mode, see {@link GenerationOptions#legacy()} */
+	public static String spectralClass(@NonNull Universe u, long index, boolean legacy) {
+		return StarGenerator.spectralClass(indexRandom(u, index), legacy);
+	}
+
+	/** Seed of star number <code>index</code> */
+	public static long starSeed(@NonNull Universe u, long index) {
+		return starSeed(u, index, false);
+	}
+
+	/** Seed of star number <code>index</code> in the given sampling mode */
+	public static long starSeed(@NonNull Universe u, long index, boolean legacy) {
+		Random rnd = indexRandom(u, index);
+		StarGenerator.spectralClass(rnd, legacy);
+		return rnd.nextLong();
+	}
+
+	/** Position of star number <code>index</code> */
+	public static VectorD3D position(@NonNull Universe u, long index) {
+		return position(u, index, false);
+	}
+
+	/** Position of star number <code>index</code> in the given sampling mode */
+	public static VectorD3D position(@NonNull Universe u, long index, boolean legacy) {
+		Random rnd = indexRandom(u, index);
+		StarGenerator.spectralClass(rnd, legacy);
+		rnd.nextLong();
+		return StarGenerator.newPosition(rnd);
+	}
+
+	/** Generate star number <code>index</code>, including its planetary system */
+	public static Star star(@NonNull Universe u, long index) {
+		return star(u, index, GenerationOptions.DEFAULT);
+	}
+
+	/** Generate star number <code>index</code>, including its planetary system built with the given options */
+	public static Star star(@NonNull Universe u, long index, @NonNull GenerationOptions options) {
+		return star(u, index, false, options);
+	}
+
+	/** Generate star number <code>index</code>, building its planetary system only on first access */
+	public static Star skeleton(@NonNull Universe u, long index) {
+		return skeleton(u, index, GenerationOptions.DEFAULT);
+	}
+
+	/** Generate star number <code>index</code>, building its planetary system with the given options on first access */
+	public static Star skeleton(@NonNull Universe u, long index, @NonNull GenerationOptions options) {
+		return star(u, index, true, options);
+	}
+
+	private static Star star(Universe u, long index, boolean skeleton, GenerationOptions options) {
+		Random rnd = indexRandom(u, index);
+		String scDef = StarGenerator.spectralClass(rnd, options.legacy());
+		long seed = rnd.nextLong();
+		VectorD3D position = StarGenerator.newPosition(rnd);
+		return skeleton ? SystemGenerator.skeleton(scDef, seed, position, options) : SystemGenerator.star(scDef, seed, position, options);
+	}
+
+	/** Generate stars number <code>first</code> to <code>first + count - 1</code> using the common pool */
+	public static List<Star> stars(@NonNull Universe u, long first, int count) {
+		return stars(u, first, count, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Generate stars number <code>first</code> to <code>first + count - 1</code>
+	 * using the supplied pool. The list is ordered by star number.
+	 */
+	public static List<Star> stars(@NonNull Universe u, long first, int count, @NonNull ForkJoinPool pool) {
+		return stars(u, first, count, pool, GenerationOptions.DEFAULT);
+	}
+
+	/** Like {@link #stars(Universe, long, int, ForkJoinPool)}, building the planetary systems with the given options */
+	public static List<Star> stars(@NonNull Universe u, long first, int count, @NonNull ForkJoinPool pool, @NonNull GenerationOptions options) {
+		return stars(u, first, count, pool, false, options);
+	}
+
+	/**
+	 * Generate stars number <code>first</code> to <code>first + count - 1</code>
+	 * using the supplied pool, with their planetary systems only built on first access.
+	 * The list is ordered by star number.
+	 */
+	public static List<Star> skeletons(@NonNull Universe u, long first, int count, @NonNull ForkJoinPool pool) {
+		return skeletons(u, first, count, pool, GenerationOptions.DEFAULT);
+	}
+
+	/** Like {@link #skeletons(Universe, long, int, ForkJoinPool)}, building the planetary systems with the given options */
+	public static List<Star> skeletons(@NonNull Universe u, long first, int count, @NonNull ForkJoinPool pool, @NonNull GenerationOptions options) {
+		return stars(u, first, count, pool, true, options);
+	}
+
+	private static List<Star> stars(Universe u, long first, int count, ForkJoinPool pool, boolean skeleton, GenerationOptions options) {
+		if( count < 0 ) {
+			throw new IllegalArgumentException("Negative star count: " + count);
+		}
+		Star[] result = new Star[count];
+		pool.invoke(new StarTask(u, first, result, 0, count, skeleton, options));
+		return Arrays.asList(result);
+	}
+
+	private static final class StarTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Universe u;
+		private final long first;
+		private final Star[] result;
+		private final int from;
+		private final int to;
+		private final boolean skeleton;
+		private final GenerationOptions options;
+
+		StarTask(Universe u, long first, Star[] result, int from, int to, boolean skeleton, GenerationOptions options) {
+			this.u = u;
+			this.first = first;
+			this.result = result;
+			this.from = from;
+			this.to = to;
+			this.skeleton = skeleton;
+			this.options = options;
+		}
+
+		@Override protected void compute() {
+			if( to - from <= BATCH_SIZE ) {
+				for( int i = from; i < to; ++ i ) {
+					result[i] = star(u, first + i, skeleton, options);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new StarTask(u, first, result, from, mid, skeleton, options), new StarTask(u, first, result, mid, to, skeleton, options));
+			}
+		}
+	}
+
+	// Static-only class; no need for instances of it
+	private SectorGenerator() { }
+}
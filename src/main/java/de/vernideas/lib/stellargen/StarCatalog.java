@@ -0,0 +1,261 @@
+package de.vernideas.lib.stellargen;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.vernideas.space.data.Constant;
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.Universe;
+import de.vernideas.space.data.VectorD3D;
+import de.vernideas.space.data.starclass.StarClass;
+import de.vernideas.space.data.starclass.StarClassHelper;
+import lombok.NonNull;
+
+/**
+ * Column-wise catalog of the numbered stars of a universe.
+ * <p>
+ * Entry <i>i</i> holds the data of star number <code>first + i</code> as generated by
+ * {@link SectorGenerator}, but only as primitive columns: no <code>Star</code>, name,
+ * list or randomiser instances are kept around. Full stars get built on request.
+ * <p>
+ * Once generated, a catalog is safe to read from multiple threads.
+ */
+public final class StarCatalog {
+	/** Stars generated per fork/join leaf task */
+	private static final int BATCH_SIZE = 1024;
+
+	private static final List<String> classNames = StarGenerator.spectralClasses();
+	private static final Map<String, Integer> classIndices = new HashMap<String, Integer>();
+
+	static {
+		for( int i = 0; i < classNames.size(); ++ i ) {
+			classIndices.put(classNames.get(i), i);
+		}
+	}
+
+	private final Universe universe;
+	private final long first;
+	private final int size;
+	/** Sampling mode of the stars, see {@link GenerationOptions#legacy()} */
+	private final boolean legacy;
+	/** Parsed star classes, shared by all entries of the same class */
+	private final StarClass[] classes;
+
+	private final short[] classIndex;
+	private final long[] seed;
+	/** In kg */
+	private final double[] mass;
+	/** In W */
+	private final double[] luminosity;
+	/** In K */
+	private final float[] temperature;
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+
+	private StarCatalog(Universe universe, long first, int size, boolean legacy) {
+		this.universe = universe;
+		this.first = first;
+		this.size = size;
+		this.legacy = legacy;
+		this.classes = new StarClass[classNames.size()];
+		for( int i = 0; i < classes.length; ++ i ) {
+			classes[i] = StarClassHelper.parse(classNames.get(i));
+		}
+		this.classIndex = new short[size];
+		this.seed = new long[size];
+		this.mass = new double[size];
+		this.luminosity = new double[size];
+		this.temperature = new float[size];
+		this.x = new double[size];
+		this.y = new double[size];
+		this.z = new double[size];
+	}
+
+	/** Generate the catalog of stars number <code>first</code> to <code>first + count - 1</code> on the current thread */
+	public static StarCatalog generate(@NonNull Universe u, long first, int count) {
+		return generate(u, first, count, null);
+	}
+
+	/**
+	 * Generate the catalog of stars number <code>first</code> to <code>first + count - 1</code>
+	 * using the supplied pool; <code>null</code> generates on the current thread.
+	 */
+	public static StarCatalog generate(@NonNull Universe u, long first, int count, ForkJoinPool pool) {
+		return generate(u, first, count, pool, false);
+	}
+
+	/**
+	 * Generate the catalog like {@link #generate(Universe, long, int, ForkJoinPool)} does, with the
+	 * stars SectorGenerator makes in the given sampling mode, see {@link GenerationOptions#legacy()}.
+	 * Their planetary systems get built in the same mode.
+	 */
+	public static StarCatalog generate(@NonNull Universe u, long first, int count, ForkJoinPool pool, boolean legacy) {
+		if( count < 0 ) {
+			throw new IllegalArgumentException("Negative star count: " + count);
+		}
+		StarCatalog catalog = new StarCatalog(u, first, count, legacy);
+		FillTask task = new FillTask(catalog, 0, count, null != pool);
+		if( null != pool ) {
+			pool.invoke(task);
+		} else {
+			task.compute();
+		}
+		return catalog;
+	}
+
+	/** Fill entry <code>i</code>, using the same random draws as SectorGenerator and StarGenerator */
+	private void fill(int i) {
+		Random rnd = SectorGenerator.indexRandom(universe, first + i);
+		String scDef = StarGenerator.spectralClass(rnd, legacy);
+		int sc = classIndices.get(scDef);
+		classIndex[i] = (short)sc;
+		seed[i] = rnd.nextLong();
+		VectorD3D position = StarGenerator.newPosition(rnd);
+		x[i] = position.x;
+		y[i] = position.y;
+		z[i] = position.z;
+
+		StarGenerator.StarDraws draws = StarGenerator.draw(classes[sc], scDef, seed[i], false);
+		temperature[i] = (float)draws.temperature;
+		luminosity[i] = draws.luminosity * Constant.SOLAR_LUM;
+		mass[i] = draws.mass;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Star number of the first entry */
+	public long first() {
+		return first;
+	}
+
+	/** Sampling mode the catalog got generated in, see {@link GenerationOptions#legacy()} */
+	public boolean legacy() {
+		return legacy;
+	}
+
+	/** Star number of entry <code>i</code> */
+	public long starNumber(int i) {
+		return first + i;
+	}
+
+	/** Index of the entry's spectral class in {@link StarGenerator#spectralClasses()} */
+	public int classIndex(int i) {
+		return classIndex[i];
+	}
+
+	/** Spectral class declaration, like "G2" */
+	public String spectralClass(int i) {
+		return classNames.get(classIndex[i]);
+	}
+
+	/** Star class; the instance is shared between all entries of the same class */
+	public StarClass starClass(int i) {
+		return classes[classIndex[i]];
+	}
+
+	public long seed(int i) {
+		return seed[i];
+	}
+
+	/** Mass in kg */
+	public double mass(int i) {
+		return mass[i];
+	}
+
+	/** Luminosity in W */
+	public double luminosity(int i) {
+		return luminosity[i];
+	}
+
+	/** Effective temperature in K */
+	public double temperature(int i) {
+		return temperature[i];
+	}
+
+	public double x(int i) {
+		return x[i];
+	}
+
+	public double y(int i) {
+		return y[i];
+	}
+
+	public double z(int i) {
+		return z[i];
+	}
+
+	public VectorD3D position(int i) {
+		return new VectorD3D(x[i], y[i], z[i]);
+	}
+
+	/** Build the full star of entry <code>i</code>; its planetary system gets built on first access */
+	public Star star(int i) {
+		return star(i, GenerationOptions.DEFAULT.withLegacy(legacy));
+	}
+
+	/**
+	 * Build the full star of entry <code>i</code>; its planetary system gets built with the given options on first access
+	 *
+	 * @throws IllegalArgumentException if the options are for the other sampling mode
+	 */
+	public Star star(int i, @NonNull GenerationOptions options) {
+		checkOptions(options);
+		return SystemGenerator.skeleton(spectralClass(i), seed[i], position(i), options);
+	}
+
+	/** Build the full star of entry <code>i</code>, including its planetary system */
+	public Star system(int i) {
+		return system(i, GenerationOptions.DEFAULT.withLegacy(legacy));
+	}
+
+	/**
+	 * Build the full star of entry <code>i</code>, including its planetary system built with the given options
+	 *
+	 * @throws IllegalArgumentException if the options are for the other sampling mode
+	 */
+	public Star system(int i, @NonNull GenerationOptions options) {
+		checkOptions(options);
+		return SystemGenerator.star(spectralClass(i), seed[i], position(i), options);
+	}
+
+	/** Systems have to be built in the sampling mode their stars got made in */
+	void checkOptions(GenerationOptions options) {
+		if( options.legacy() != legacy ) {
+			throw new IllegalArgumentException("Catalog needs legacy sampling mode " + (legacy ? "on" : "off"));
+		}
+	}
+
+	private static final class FillTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final StarCatalog catalog;
+		private final int from;
+		private final int to;
+		private final boolean parallel;
+
+		FillTask(StarCatalog catalog, int from, int to, boolean parallel) {
+			this.catalog = catalog;
+			this.from = from;
+			this.to = to;
+			this.parallel = parallel;
+		}
+
+		@Override protected void compute() {
+			if( parallel && to - from > BATCH_SIZE ) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new FillTask(catalog, from, mid, parallel), new FillTask(catalog, mid, to, parallel));
+			} else {
+				for( int i = from; i < to; ++ i ) {
+					catalog.fill(i);
+				}
+			}
+		}
+	}
+}
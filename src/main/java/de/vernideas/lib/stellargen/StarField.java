@@ -0,0 +1,188 @@
+package de.vernideas.lib.stellargen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.Universe;
+import de.vernideas.space.data.VectorD3D;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+/**
+ * Star field of a universe, split into cubic cells which get populated on demand.
+ * <p>
+ * The population of a cell depends only on the universe seed and the cell coordinates,
+ * so any cell can be generated (and re-generated) on its own, without touching any other
+ * cell. Cell (0, 0, 0) starts at the origin; cells outside of the universe cube are empty,
+ * and the ones sticking out of its far sides only get populated inside of it.
+ * <p>
+ * The amount of stars per cell is Poisson-distributed, which keeps the field statistically
+ * the same no matter which cell size gets picked. Only statistically, though: every cell draws
+ * its stars from its own seed, so a coarser cell is not the union of the finer ones it covers.
+ * Changing the cell size changes the actual stars; keep it fixed for a universe.
+ */
+@Accessors(fluent = true)
+public class StarField {
+	/** Above this mean, the cell population gets drawn from a normal approximation */
+	private static final double POISSON_NORMAL_LIMIT = 64.0;
+
+	private final Universe universe;
+	/** Edge length of a cell */
+	@Getter private final double cellSize;
+	/** Average amount of stars per cell */
+	@Getter private final double meanStarsPerCell;
+	/** Number of cells along each axis */
+	@Getter private final int cellsPerAxis;
+	/** How the planetary systems get built */
+	@Getter private final GenerationOptions options;
+
+	public StarField(@NonNull Universe universe, double cellSize, double meanStarsPerCell) {
+		this(universe, cellSize, meanStarsPerCell, GenerationOptions.DEFAULT);
+	}
+
+	public StarField(@NonNull Universe universe, double cellSize, double meanStarsPerCell, @NonNull GenerationOptions options) {
+		if( cellSize <= 0.0 || cellSize > StarGenerator.UNIVERSE_SIZE ) {
+			throw new IllegalArgumentException("Illegal cell size " + cellSize);
+		}
+		if( meanStarsPerCell < 0.0 ) {
+			throw new IllegalArgumentException("Illegal star density " + meanStarsPerCell);
+		}
+		this.universe = universe;
+		this.cellSize = cellSize;
+		this.meanStarsPerCell = meanStarsPerCell;
+		this.cellsPerAxis = (int)Math.ceil(StarGenerator.UNIVERSE_SIZE / cellSize);
+		this.options = options;
+	}
+
+	/** Cell coordinate along one axis for the given position coordinate */
+	public int cellIndex(double coordinate) {
+		return (int)Math.floor(coordinate / cellSize);
+	}
+
+	public boolean validCell(int cellX, int cellY, int cellZ) {
+		return cellX >= 0 && cellX < cellsPerAxis && cellY >= 0 && cellY < cellsPerAxis && cellZ >= 0 && cellZ < cellsPerAxis;
+	}
+
+	/** Seed of the given cell; everything inside the cell is derived from it */
+	public long cellSeed(int cellX, int cellY, int cellZ) {
+		return GenUtil.deriveSeed(GenUtil.deriveSeed(GenUtil.deriveSeed(universe.seed, cellX), cellY), cellZ);
+	}
+
+	/** Amount of stars in the given cell */
+	public int starCount(int cellX, int cellY, int cellZ) {
+		if( !validCell(cellX, cellY, cellZ) ) {
+			return 0;
+		}
+		double volumeFraction = cellExtent(cellX) * cellExtent(cellY) * cellExtent(cellZ) / (cellSize * cellSize * cellSize);
+		return poisson(new Random(cellSeed(cellX, cellY, cellZ)), meanStarsPerCell * volumeFraction);
+	}
+
+	/** Edge length of the cell along one axis; cells on the far border of the universe can be smaller */
+	private double cellExtent(int cell) {
+		return Math.min(cellSize, StarGenerator.UNIVERSE_SIZE - cell * cellSize);
+	}
+
+	/** Generate the stars of the given cell; planetary systems get built on first access */
+	public List<Star> stars(int cellX, int cellY, int cellZ) {
+		return cellStars(cellX, cellY, cellZ, false);
+	}
+
+	/** Generate the stars of the given cell, including their planetary systems */
+	public List<Star> systems(int cellX, int cellY, int cellZ) {
+		return cellStars(cellX, cellY, cellZ, true);
+	}
+
+	/** Generate star number <code>index</code> of the given cell, or null if there's no such star */
+	public Star star(int cellX, int cellY, int cellZ, int index, boolean withPlanets) {
+		if( index < 0 || index >= starCount(cellX, cellY, cellZ) ) {
+			return null;
+		}
+		return cellStar(cellSeed(cellX, cellY, cellZ), cellX, cellY, cellZ, index, withPlanets);
+	}
+
+	/** Generate all stars inside the given box (both corners inclusive); planetary systems get built on first access */
+	public List<Star> stars(@NonNull VectorD3D min, @NonNull VectorD3D max) {
+		return boxStars(min, max, false);
+	}
+
+	/** Generate all stars inside the given box (both corners inclusive), including their planetary systems */
+	public List<Star> systems(@NonNull VectorD3D min, @NonNull VectorD3D max) {
+		return boxStars(min, max, true);
+	}
+
+	private List<Star> boxStars(VectorD3D min, VectorD3D max, boolean withPlanets) {
+		int minX = Math.max(cellIndex(Math.min(min.x, max.x)), 0);
+		int minY = Math.max(cellIndex(Math.min(min.y, max.y)), 0);
+		int minZ = Math.max(cellIndex(Math.min(min.z, max.z)), 0);
+		int maxX = Math.min(cellIndex(Math.max(min.x, max.x)), cellsPerAxis - 1);
+		int maxY = Math.min(cellIndex(Math.max(min.y, max.y)), cellsPerAxis - 1);
+		int maxZ = Math.min(cellIndex(Math.max(min.z, max.z)), cellsPerAxis - 1);
+
+		List<Star> result = new ArrayList<Star>();
+		for( int x = minX; x <= maxX; ++ x ) {
+			for( int y = minY; y <= maxY; ++ y ) {
+				for( int z = minZ; z <= maxZ; ++ z ) {
+					for( Star star : cellStars(x, y, z, withPlanets) ) {
+						if( inBox(star.position(), min, max) ) {
+							result.add(star);
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static boolean inBox(VectorD3D pos, VectorD3D min, VectorD3D max) {
+		return pos.x >= Math.min(min.x, max.x) && pos.x <= Math.max(min.x, max.x)
+				&& pos.y >= Math.min(min.y, max.y) && pos.y <= Math.max(min.y, max.y)
+				&& pos.z >= Math.min(min.z, max.z) && pos.z <= Math.max(min.z, max.z);
+	}
+
+	private List<Star> cellStars(int cellX, int cellY, int cellZ, boolean withPlanets) {
+		int count = starCount(cellX, cellY, cellZ);
+		if( count == 0 ) {
+			return Collections.<Star>emptyList();
+		}
+		long cellSeed = cellSeed(cellX, cellY, cellZ);
+		List<Star> result = new ArrayList<Star>(count);
+		for( int i = 0; i < count; ++ i ) {
+			result.add(cellStar(cellSeed, cellX, cellY, cellZ, i, withPlanets));
+		}
+		return result;
+	}
+
+	private Star cellStar(long cellSeed, int cellX, int cellY, int cellZ, int index, boolean withPlanets) {
+		Random rnd = new Random(GenUtil.deriveSeed(cellSeed, index));
+		String scDef = StarGenerator.spectralClass(rnd, options.legacy());
+		long seed = rnd.nextLong();
+		VectorD3D position = new VectorD3D(
+				cellX * cellSize + rnd.nextDouble() * cellExtent(cellX),
+				cellY * cellSize + rnd.nextDouble() * cellExtent(cellY),
+				cellZ * cellSize + rnd.nextDouble() * cellExtent(cellZ));
+		return withPlanets ? SystemGenerator.star(scDef, seed, position, options) : SystemGenerator.skeleton(scDef, seed, position, options);
+	}
+
+	/** Poisson-distributed random number; normal approximation for big means */
+	private static int poisson(Random rnd, double mean) {
+		if( mean <= 0.0 ) {
+			return 0;
+		}
+		if( mean > POISSON_NORMAL_LIMIT ) {
+			return (int)Math.max(Math.round(mean + rnd.nextGaussian() * Math.sqrt(mean)), 0L);
+		}
+		// Knuth's multiplication method
+		double limit = Math.exp(-mean);
+		double product = rnd.nextDouble();
+		int count = 0;
+		while( product > limit ) {
+			product *= rnd.nextDouble();
+			++ count;
+		}
+		return count;
+	}
+}
@@ -8,10 +8,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
-import java.util.TreeMap;
 
+import de.vernideas.lib.stellargen.sampler.WeightedSampler;
 import de.vernideas.space.data.Constant;
-import de.vernideas.space.data.Pair;
 import de.vernideas.space.data.Star;
 import de.vernideas.space.data.Universe;
 import de.vernideas.space.data.VectorD3D;
@@ -25,11 +24,11 @@ public final class StarGenerator {
 	 * @param u
 	 */
 	public static Star star(Universe u) {
-		return star(u, spectralDistribution.lowerEntry(u.random().nextInt(maxSpectralVal) + 1).getValue(), u.seed + u.random().nextInt());
+		return star(u, spectralClass(u.random()), u.seed + u.random().nextInt());
 	}
 	
 	public static Star star(Universe u, long seed) {
-		return star(u, spectralDistribution.lowerEntry(u.random().nextInt(maxSpectralVal) + 1).getValue(), seed);
+		return star(u, spectralClass(u.random()), seed);
 	}
 	
 	public static Star star(Universe u, String scDef) {
@@ -37,34 +36,81 @@ public final class StarGenerator {
 	}
 	
 	public static Star star(Universe u, String scDef, long seed) {
-		Random starRnd = new Random(seed);
-		String scClass = scDef.substring(0, 1);
+		return star(scDef, seed, newPosition(u));
+	}
+	
+	/**
+	 * Generate a star with a known spectral class, seed and position.
+	 * <p>
+	 * Doesn't touch the universe randomiser, so it's safe to call from multiple threads.
+	 */
+	public static Star star(String scDef, long seed, VectorD3D position) {
 		StarClass sc = StarClassHelper.parse(scDef);
-		String name = starName(starRnd, scClass);
-		Star star = new Star(name, sc);
+		StarDraws draws = draw(sc, scDef, seed, true);
+		Star star = new Star(draws.name, sc);
 		
 		star.seed(seed);
-		star.random(starRnd);
-		star.position(newPosition(u));
+		star.random(draws.random);
+		star.position(position);
 		
-		double effTemp = StarClassHelper.randomTemp(sc, starRnd);
-		double luminosity = StarClassHelper.randomLuminosity(sc, starRnd);
 		// Calculate diameter out of temperature and luminosity
-		double diameter = Math.sqrt(luminosity) / effTemp / effTemp * Constant.SOLAR_TEMPERATURE * Constant.SOLAR_TEMPERATURE;
+		double diameter = Math.sqrt(draws.luminosity) / draws.temperature / draws.temperature * Constant.SOLAR_TEMPERATURE * Constant.SOLAR_TEMPERATURE;
 		
-		star.temperature(effTemp);
+		star.temperature(draws.temperature);
 		star.diameter(diameter * Constant.SOLAR_DIAMETER);
-		star.luminosity(luminosity * Constant.SOLAR_LUM);
-		star.originalLuminosity(StarClassHelper.randomOriginalLuminosity(sc, luminosity * Constant.SOLAR_LUM, starRnd));
-		star.mass(StarClassHelper.randomMass(sc, starRnd) * Constant.SOLAR_MASS);
+		star.luminosity(draws.luminosity * Constant.SOLAR_LUM);
+		star.originalLuminosity(draws.originalLuminosity);
+		star.mass(draws.mass);
 
 		return star;
 	}
 	
+	/**
+	 * The randomiser {@link #star(String, long, VectorD3D)} leaves behind for the given class and
+	 * seed: same draws, without building the star.
+	 */
+	static Random starRandom(StarClass sc, String scDef, long seed) {
+		return draw(sc, scDef, seed, false).random;
+	}
+	
+	/**
+	 * The random draws of a star, in the order {@link #star(String, long, VectorD3D)} makes them.
+	 *
+	 * @param buildName false to only make the name's draws; the name is null then
+	 */
+	static StarDraws draw(StarClass sc, String scDef, long seed, boolean buildName) {
+		Random starRnd = new Random(seed);
+		String name = starName(starRnd, scDef.substring(0, 1), buildName);
+		double temperature = StarClassHelper.randomTemp(sc, starRnd);
+		double luminosity = StarClassHelper.randomLuminosity(sc, starRnd);
+		double originalLuminosity = StarClassHelper.randomOriginalLuminosity(sc, luminosity * Constant.SOLAR_LUM, starRnd);
+		double mass = StarClassHelper.randomMass(sc, starRnd) * Constant.SOLAR_MASS;
+		return new StarDraws(starRnd, name, temperature, luminosity, originalLuminosity, mass);
+	}
+	
+	/** Outcome of {@link StarGenerator#draw(StarClass, String, long, boolean)}; luminosity in solar units, the rest in SI units */
+	static final class StarDraws {
+		/** The randomiser, with all draws made */
+		final Random random;
+		final String name;
+		final double temperature;
+		final double luminosity;
+		final double originalLuminosity;
+		final double mass;
+		
+		private StarDraws(Random random, String name, double temperature, double luminosity, double originalLuminosity, double mass) {
+			this.random = random;
+			this.name = name;
+			this.temperature = temperature;
+			this.luminosity = luminosity;
+			this.originalLuminosity = originalLuminosity;
+			this.mass = mass;
+		}
+	}
+	
 	// Constant tables
-	private static final List<Pair<String, Integer>> scList = new ArrayList<Pair<String,Integer>>(100);
-	private static final TreeMap<Integer, String> spectralDistribution = new TreeMap<Integer, String>();
-	private static final int maxSpectralVal;
+	/** Spectral class weights, see {@link GenUtil#weights} for how to replace them */
+	private static final WeightedSampler<String> spectralDistribution = GenUtil.weights("spectralclasses", (sc) -> sc);
 
 	private static final List<String> constellationNames;
 	
@@ -75,14 +121,47 @@ public final class StarGenerator {
 	
 	private static final List<String> durchmusterungNames;
 	
+	/** Edge length of the (cubic) volume stars get scattered in */
+	public static final double UNIVERSE_SIZE = 256000.0;
+	
 	private static VectorD3D newPosition(Universe u) {
-		return new VectorD3D(u.random().nextDouble()*256000.0, u.random().nextDouble()*256000, u.random().nextDouble()*256000);
+		return newPosition(u.random());
+	}
+	
+	/** Random position inside the universe cube */
+	public static VectorD3D newPosition(Random rnd) {
+		return new VectorD3D(rnd.nextDouble() * UNIVERSE_SIZE, rnd.nextDouble() * UNIVERSE_SIZE, rnd.nextDouble() * UNIVERSE_SIZE);
+	}
+	
+	/** All spectral class declarations {@link #spectralClass(Random)} can return, in a fixed order */
+	public static List<String> spectralClasses() {
+		return spectralDistribution.values();
+	}
+	
+	/** Pick a random spectral class declaration (like "G2") according to the spectral class weights */
+	public static String spectralClass(Random rnd) {
+		return spectralClass(rnd, false);
+	}
+	
+	/** Pick a random spectral class declaration, the way older versions did if <code>legacy</code> is true, see {@link GenerationOptions#legacy()} */
+	public static String spectralClass(Random rnd, boolean legacy) {
+		return (legacy ? spectralDistribution.sampleLegacy(rnd) : spectralDistribution.sample(rnd));
 	}
 	
 	/**
 	 * Generate a random star name
 	 */
 	public static String starName(Random rnd, String specClass)
+	{
+		return starName(rnd, specClass, true);
+	}
+	
+	/**
+	 * Draw a random star name. If <code>build</code> is false, only the random numbers
+	 * get consumed and null is returned; this keeps the random sequence the same for
+	 * callers which don't need the name.
+	 */
+	static String starName(Random rnd, String specClass, boolean build)
 	{
 		if( specClass.equals("O") || specClass.equals("B") || specClass.equals("A") || specClass.equals("F") || (specClass.equals("G") && rnd.nextBoolean()) )
 		{
@@ -100,52 +179,30 @@ public final class StarGenerator {
 				default:
 					break;
 			}
-			return starPrefixes.get(prefixNum) + " " + constellationNames.get(rnd.nextInt(constellationNames.size()));
+			int constellation = rnd.nextInt(constellationNames.size());
+			return build ? starPrefixes.get(prefixNum) + " " + constellationNames.get(constellation) : null;
 		}
 		
 		// Flamsteed-like designations
 		if( specClass.equals("G") || (specClass.equals("K") && rnd.nextInt(4) > 0) || (specClass.equals("M") && rnd.nextInt(5) == 0) )
 		{
-			return (Math.max(rnd.nextInt(99), rnd.nextInt(99)) + 1) + " " + constellationNames.get(rnd.nextInt(constellationNames.size()));
+			int number = Math.max(rnd.nextInt(99), rnd.nextInt(99)) + 1;
+			int constellation = rnd.nextInt(constellationNames.size());
+			return build ? number + " " + constellationNames.get(constellation) : null;
 		}
 		
 		// Random catalogue name
 		int catalogueMax = durchmusterungNames.size();
 		
 		// TODO: First number should depend on position relative to the origin
-		return durchmusterungNames.get(Math.min(rnd.nextInt(catalogueMax), rnd.nextInt(catalogueMax)))
-				+ (rnd.nextBoolean() ? "+" : "-") + String.format("%02d", rnd.nextInt(90)) + "°" + (rnd.nextInt(19900) + 100);
+		int catalogue = Math.min(rnd.nextInt(catalogueMax), rnd.nextInt(catalogueMax));
+		boolean north = rnd.nextBoolean();
+		int declination = rnd.nextInt(90);
+		int number = rnd.nextInt(19900) + 100;
+		return build ? durchmusterungNames.get(catalogue) + (north ? "+" : "-") + String.format("%02d", declination) + "°" + number : null;
 	}
 	
-	private static void addSC(String base, int minDist, int maxDist)
-	{
-		for( int i = 0; i <= 9; ++ i )
-		{
-			scList.add(Pair.<String,Integer>of(base + String.valueOf(i), GenUtil.lerp(minDist, maxDist, i / 9.0)));
-		}
-	}
-
 	static {
-		addSC("O", 1, 12);
-		addSC("B", 13, 20);
-		addSC("A", 25, 40);
-		addSC("F", 45, 80);
-		addSC("G", 100, 150);
-		addSC("K", 160, 250);
-		addSC("M", 260, 400);
-		// These should be more common, but we don't actually care that much for them. Too small, too dark.
-		addSC("L", 200, 20);
-		// those are just too small (come up with a weight below Jupiter ...)
-		// addSC("T", 150, 100);
-		// addSC("Y", 90, 50);
-		
-		int count = 0;
-		for( Pair<String, Integer> spectral : scList) {
-			spectralDistribution.put(count, spectral.first);
-			count += spectral.second;
-		}
-		maxSpectralVal = count;
-		
 		constellationNames = new ArrayList<String>();
 		try(
 			InputStream in = StarGenerator.class.getResourceAsStream("/de/vernideas/lib/stellargen/constellations.txt");
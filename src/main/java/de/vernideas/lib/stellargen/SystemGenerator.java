@@ -1,18 +1,27 @@
 package de.vernideas.lib.stellargen;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
+import de.vernideas.space.data.Belt;
 import de.vernideas.space.data.Constant;
+import de.vernideas.space.data.Moon;
 import de.vernideas.space.data.Pair;
 import de.vernideas.space.data.Planet;
 import de.vernideas.space.data.Satellite;
+import de.vernideas.space.data.SharedWork;
 import de.vernideas.space.data.Star;
 import de.vernideas.space.data.Universe;
+import de.vernideas.space.data.VectorD3D;
+import de.vernideas.space.data.planetaryclass.PlanetaryClass;
 import de.vernideas.space.data.starclass.StarClassHelper;
+import lombok.NonNull;
 
 /**
  * Random stateless star generator.
@@ -42,9 +51,15 @@ public class SystemGenerator {
 	
 	public static Star star(Universe u, String scDef) {
 		// Build the star first
-		Star star = (null == scDef ? StarGenerator.star(u) : StarGenerator.star(u, scDef));
+		return star(u, scDef, GenerationOptions.DEFAULT);
+	}
+	
+	public static Star star(Universe u, String scDef, @NonNull GenerationOptions options) {
+		// Build the star first; same order of random draws as StarGenerator.star(Universe)
+		String sc = (null == scDef ? StarGenerator.spectralClass(u.random(), options.legacy()) : scDef);
+		Star star = StarGenerator.star(u, sc);
 		
-		addPlanetarySystem(star);
+		addPlanetarySystem(star, null, options, null);
 		
 		return star;
 	}
@@ -53,12 +68,169 @@ public class SystemGenerator {
 		// Build the star first
 		Star star = (null == scDef ? StarGenerator.star(u, starSeed) : StarGenerator.star(u, scDef, starSeed));
 		
-		addPlanetarySystem(star);
+		addPlanetarySystem(star, null, GenerationOptions.DEFAULT, null);
+		
+		return star;
+	}
+	
+	/**
+	 * Build a full system with a known spectral class, seed and position. Doesn't use the
+	 * universe randomiser; the result only depends on the parameters.
+	 */
+	public static Star star(String scDef, long starSeed, VectorD3D position) {
+		return star(scDef, starSeed, position, GenerationOptions.DEFAULT);
+	}
+	
+	/** Build a full system like {@link #star(String, long, VectorD3D)} does, with the given options */
+	public static Star star(String scDef, long starSeed, VectorD3D position, @NonNull GenerationOptions options) {
+		Star star = StarGenerator.star(scDef, starSeed, position);
+		
+		addPlanetarySystem(star, null, options, null);
+		
+		return star;
+	}
+	
+	/**
+	 * Build a full system like {@link #star(String, long, VectorD3D)} does, but decorate the
+	 * planets and planetoids (material, diameter, moons and classification) in parallel once
+	 * all of them got placed. The executor's threads and the calling thread share the work; the
+	 * result is the same as without it. Budgets with an attempt limit need the attempts in order,
+	 * so with them, everything happens on the calling thread.
+	 */
+	public static Star star(String scDef, long starSeed, VectorD3D position, @NonNull Executor executor) {
+		return star(scDef, starSeed, position, GenerationOptions.DEFAULT, executor);
+	}
+	
+	/** Build a full system like {@link #star(String, long, VectorD3D, Executor)} does, with the given options */
+	public static Star star(String scDef, long starSeed, VectorD3D position, @NonNull GenerationOptions options, @NonNull Executor executor) {
+		Star star = StarGenerator.star(scDef, starSeed, position);
+		
+		addPlanetarySystem(star, null, options, executor);
+		
+		return star;
+	}
+	
+	/**
+	 * Build a full system like {@link #star(String, long, VectorD3D)} does, along with the
+	 * recipe to rebuild it quickly.
+	 */
+	public static Pair<Star, SystemRecipe> starWithRecipe(String scDef, long starSeed, @NonNull VectorD3D position) {
+		return starWithRecipe(scDef, starSeed, position, GenerationOptions.DEFAULT);
+	}
+	
+	/**
+	 * Build a full system and its recipe like {@link #starWithRecipe(String, long, VectorD3D)}
+	 * does, with the given options. The system always gets a planetoid list.
+	 */
+	public static Pair<Star, SystemRecipe> starWithRecipe(String scDef, long starSeed, @NonNull VectorD3D position, @NonNull GenerationOptions options) {
+		Star star = StarGenerator.star(scDef, starSeed, position);
+		SystemRecipe.Builder recipe = new SystemRecipe.Builder(scDef, starSeed, position, options.legacy());
+		
+		addPlanetarySystem(star, recipe, options, null);
+		
+		return Pair.<Star, SystemRecipe>of(star, recipe.build());
+	}
+	
+	/**
+	 * Rebuild a system from its recipe, with one attempt per planet and planetoid, in the
+	 * sampling mode the recipe got made in.
+	 * 
+	 * @throws IllegalArgumentException if the recipe doesn't fit the generator, for example
+	 *     because it got made with other weight tables
+	 */
+	public static Star replay(@NonNull SystemRecipe recipe) {
+		return replay(recipe, GenerationOptions.DEFAULT);
+	}
+	
+	/**
+	 * Rebuild a system from its recipe like {@link #replay(SystemRecipe)} does. Of the options,
+	 * only {@link GenerationOptions#lean()} applies; the recipe has its own budget and sampling mode.
+	 */
+	public static Star replay(@NonNull SystemRecipe recipe, @NonNull GenerationOptions options) {
+		Star star = StarGenerator.star(recipe.spectralClass(), recipe.starSeed(), recipe.position());
+		List<Planet> planets = new ArrayList<Planet>();
+		for( int i = 0; i < recipe.size(); ++ i ) {
+			// Moons get the same number of attempts as before, so they run out of budget at the same point
+			GenerationBudget.Tracker budget = GenerationBudget.attempts(recipe.moonAttempts(i)).start();
+			Planet body = null;
+			switch( recipe.kind(i) ) {
+				case TERRESTIAL:
+					body = PlanetGenerator.replayTerrestialPlanet(star, recipe.seed(i), recipe.minMass(i), recipe.maxMass(i), budget, recipe.legacy());
+					break;
+				case GASGIANT:
+					body = PlanetGenerator.replayGasgiant(star, recipe.seed(i), recipe.minMass(i), recipe.maxMass(i), budget, recipe.legacy());
+					break;
+				case PLANETOID:
+					body = PlanetGenerator.replayPlanetoid(star, recipe.seed(i), recipe.maxMass(i), budget, recipe.legacy());
+					break;
+			}
+			if( null == body ) {
+				throw new IllegalArgumentException("Body " + i + " of the recipe for " + star.name() + " doesn't fit");
+			}
+			if( recipe.kind(i) == SystemRecipe.Kind.PLANETOID ) {
+				star.planetoids.add(body);
+			} else {
+				planets.add(body);
+				star.planets.add(body);
+			}
+		}
+		namePlanets(star, planets);
+		if( options.lean() ) {
+			release(star);
+		}
+		return star;
+	}
+	
+	public static Star skeleton(Universe u) {
+		return skeleton(u, null);
+	}
+	
+	public static Star skeleton(Universe u, String scDef) {
+		// Same order of random draws as star(Universe, String)
+		String sc = (null == scDef ? StarGenerator.spectralClass(u.random()) : scDef);
+		return skeleton(u, sc, u.seed + u.random().nextInt());
+	}
+	
+	public static Star skeleton(Universe u, String scDef, long starSeed) {
+		return skeleton(null == scDef ? StarGenerator.spectralClass(u.random()) : scDef, starSeed, StarGenerator.newPosition(u.random()));
+	}
+	
+	/**
+	 * Build only the star; planets, planetoids and their moons get built the first time
+	 * the planet or planetoid list gets accessed. The result is the same as what
+	 * {@link #star(String, long, VectorD3D)} returns for the same parameters.
+	 */
+	public static Star skeleton(String scDef, long starSeed, VectorD3D position) {
+		return skeleton(scDef, starSeed, position, GenerationOptions.DEFAULT);
+	}
+	
+	/** Build only the star like {@link #skeleton(String, long, VectorD3D)} does; its planetary system gets built with the given options */
+	public static Star skeleton(String scDef, long starSeed, VectorD3D position, @NonNull GenerationOptions options) {
+		Star star = StarGenerator.star(scDef, starSeed, position);
+		
+		star.deferPlanetarySystem((s) -> {
+			// Planetary generation continues the star's random sequence; start it over in case it got used since
+			s.random(StarGenerator.starRandom(s.starClass, scDef, starSeed));
+			addPlanetarySystem(s, null, options, null);
+		});
 		
 		return star;
 	}
 	
-	private static void addPlanetarySystem(Star star) {
+	/**
+	 * @param recipe collects the accepted bodies if not null
+	 * @param executor decorates the bodies if not null, see {@link #star(String, long, VectorD3D, Executor)}
+	 */
+	private static void addPlanetarySystem(Star star, SystemRecipe.Builder recipe, GenerationOptions options, Executor executor) {
+		boolean timed = GeneratorMetrics.enabled();
+		long startTime = timed ? System.nanoTime() : 0L;
+		GenerationBudget budgetLimits = options.budget();
+		GenerationBudget.Tracker budget = budgetLimits.start();
+		// Recipes need the moon attempts of each body right when it gets accepted
+		boolean parallel = (null != executor && null == recipe && budgetLimits.attempts() == Long.MAX_VALUE);
+		if( parallel ) {
+			budget.deferDecoration();
+		}
 		double maxPlanetaryMass = Math.min(Constant.MAX_PLANETARY_MASS, star.mass() / 25.0);
 		
 		// Planet building phase
@@ -87,21 +259,32 @@ public class SystemGenerator {
 			int planetTriesLeft = planetNum * 10;
 			
 			int curPlanetNum = 0;
-			while( stellarDust > 1000.0 * Constant.YOTTAGRAM && planetNum > curPlanetNum && planetTriesLeft > 0 )
+			while( stellarDust > 1000.0 * Constant.YOTTAGRAM && planetNum > curPlanetNum && planetTriesLeft > 0 && !budget.exhausted() )
 			{
 				Planet tempPlanet = null;
+				boolean gasgiant = false;
+				double minMass;
+				double maxMass;
 				if( stellarDust > stellarDustLimit * 0.01 && stellarDust > Constant.MAX_TERRESTRIAL_MASS && star.random().nextInt(10) + gasgiantMod > 3 )
 				{
 					// Try generating gas giants first
-					double minMass = Math.max(Constant.MAX_TERRESTRIAL_MASS, stellarDust / 2.0);
-					tempPlanet = PlanetGenerator.newGasgiant(star, null, minMass, Math.min(maxPlanetaryMass, stellarDust));
+					gasgiant = true;
+					minMass = Math.max(Constant.MAX_TERRESTRIAL_MASS, stellarDust / 2.0);
+					maxMass = Math.min(maxPlanetaryMass, stellarDust);
+					tempPlanet = PlanetGenerator.newGasgiant(star, null, minMass, maxMass, budget, options.legacy());
 				}
 				else
 				{
-					double maxMass = Math.min(maxPlanetaryMass, stellarDust * (0.5 + (planetNum - curPlanetNum) / (2.0 * planetNum)));
-					tempPlanet = PlanetGenerator.newTerrestialPlanet(star, null, Constant.MIN_TERRESTRIAL_MASS, maxMass);
+					// Same limits newTerrestialPlanet() applies
+					minMass = Constant.MIN_TERRESTRIAL_MASS;
+					maxMass = Math.min(Constant.MAX_TERRESTRIAL_MASS, Math.min(maxPlanetaryMass, stellarDust * (0.5 + (planetNum - curPlanetNum) / (2.0 * planetNum))));
+					tempPlanet = PlanetGenerator.newTerrestialPlanet(star, null, minMass, maxMass, budget, options.legacy());
 				}
 				if( null != tempPlanet && tempPlanet.mass() <= stellarDust ) {
+					if( null != recipe ) {
+						recipe.add(gasgiant ? SystemRecipe.Kind.GASGIANT : SystemRecipe.Kind.TERRESTIAL,
+								tempPlanet.seed(), minMass, maxMass, budget.sinceDecoration());
+					}
 					planets.add(tempPlanet);
 					star.planets.add(tempPlanet);
 					stellarDust -= tempPlanet.mass();
@@ -113,17 +296,9 @@ public class SystemGenerator {
 			planetNum = curPlanetNum;
 		}
 				
-		// Assign names
-		Collections.sort(planets, Satellite.REVERSE_MASS_COMPARATOR);
-		int generatedPlanets = 0;
+		namePlanets(star, planets);
 		double smallestPlanetMass = Constant.MAX_TERRESTRIAL_MASS;
-		for( int i = 0; i < planetNum; ++ i ) {
-			boolean habitable = false;
-			Planet planet = planets.get(i);
-			planet.name(star.name() + " " + (char)('b' + generatedPlanets));
-			habitable = habitable || planet.habitable();
-			//star.planets.add(planet);
-			++ generatedPlanets;
+		for( Planet planet : planets ) {
 			if( planet.mass() < smallestPlanetMass )
 			{
 				smallestPlanetMass = planet.mass();
@@ -134,16 +309,117 @@ public class SystemGenerator {
 		double planetoidEstimate = Math.min(Math.pow(stellarDust / Constant.YOTTAGRAM, 0.3) * 20.0, 20.0 + Math.abs(star.random().nextGaussian() * 15.0));
 		int planetoids = (int)Math.round(planetoidEstimate);
 		
-		for( int i = 0; i < planetoids; ++ i )
-		{
-			Planet planet = PlanetGenerator.newPlanetoid(star, smallestPlanetMass / 10);
-			if( null != planet )
+		if( options.belts() && null == recipe ) {
+			star.belt(newBelt(star, planetoids, smallestPlanetMass / 10, budget, options));
+		} else {
+			for( int i = 0; i < planetoids && !budget.exhausted(); ++ i )
 			{
-				star.planetoids.add(planet);
+				Planet planet = PlanetGenerator.newPlanetoid(star, smallestPlanetMass / 10, null, budget, options.legacy());
+				if( null != planet )
+				{
+					if( null != recipe ) {
+						recipe.add(SystemRecipe.Kind.PLANETOID, planet.seed(), 0.0, smallestPlanetMass / 10, budget.sinceDecoration());
+					}
+					star.planetoids.add(planet);
+				}
 			}
 		}
+		
+		boolean exhausted = budget.exhausted();
+		if( parallel ) {
+			exhausted |= decorate(budget, executor);
+		}
+		if( options.lean() ) {
+			release(star);
+		}
+		
+		if( timed ) {
+			GeneratorMetrics.systemGenerated(star.starClass.type(), System.nanoTime() - startTime, exhausted);
+		}
+	}
+	
+	/**
+	 * Run the deferred decorations on the executor and the calling thread, each with its own
+	 * tracker, and wait for them.
+	 * 
+	 * @return true if any of them ran out of budget
+	 */
+	private static boolean decorate(GenerationBudget.Tracker budget, Executor executor) {
+		List<Consumer<GenerationBudget.Tracker>> decorations = budget.takeDeferred();
+		AtomicBoolean exhausted = new AtomicBoolean(false);
+		SharedWork.run(decorations.size(), (i) -> {
+			GenerationBudget.Tracker tracker = budget.fork();
+			decorations.get(i).accept(tracker);
+			if( tracker.exhausted() ) {
+				exhausted.set(true);
+			}
+		}, executor);
+		return exhausted.get();
 	}
 		
+	/**
+	 * Pick the planetoids for a belt the same way as for the planetoid list
+	 *
+	 * @param options sampling mode and {@link GenerationOptions#lean() lean} setting for the
+	 *     planetoids materialised later on
+	 */
+	private static Belt newBelt(Star star, int planetoids, double maxMass, GenerationBudget.Tracker budget, GenerationOptions options) {
+		boolean legacy = options.legacy();
+		boolean release = options.lean();
+		long[] seed = new long[planetoids];
+		double[] mass = new double[planetoids];
+		double[] radius = new double[planetoids];
+		PlanetaryClass[] planetaryClass = new PlanetaryClass[planetoids];
+		int count = 0;
+		for( int i = 0; i < planetoids && !budget.exhausted(); ++ i ) {
+			Planet planet = PlanetGenerator.probePlanetoid(star, maxMass, budget, legacy);
+			if( null != planet ) {
+				seed[count] = planet.seed();
+				mass[count] = planet.mass();
+				radius[count] = planet.orbit().radius;
+				planetaryClass[count] = planet.planetaryClass();
+				++ count;
+			}
+		}
+		// Planetoids don't take up orbits, so they can all be built against the finished system
+		long[] seeds = Arrays.copyOf(seed, count);
+		double reference = PlanetGenerator.planetoidReference(star, legacy);
+		return new Belt(Arrays.copyOf(mass, count), Arrays.copyOf(radius, count), Arrays.copyOf(planetaryClass, count),
+				(index) -> {
+					Planet planet = PlanetGenerator.materialisePlanetoid(star, seeds[index], maxMass, reference, legacy);
+					if( release && null != planet ) {
+						release(planet);
+					}
+					return planet;
+				});
+	}
+	
+	/** Drop the randomisers of a finished system, see {@link GenerationOptions#lean()} */
+	private static void release(Star star) {
+		star.releaseRandom();
+		for( Planet planet : star.planets ) {
+			release(planet);
+		}
+		for( Planet planet : star.planetoids ) {
+			release(planet);
+		}
+	}
+	
+	private static void release(Planet planet) {
+		planet.releaseRandom();
+		for( Moon moon : planet.moons ) {
+			moon.releaseRandom();
+		}
+	}
+	
+	/** Sort the planets by mass, heaviest first, and name them in that order */
+	private static void namePlanets(Star star, List<Planet> planets) {
+		Collections.sort(planets, Satellite.REVERSE_MASS_COMPARATOR);
+		for( int i = 0; i < planets.size(); ++ i ) {
+			planets.get(i).name(star.name() + " " + (char)('b' + i));
+		}
+	}
+	
 	/**
 	 * Root mean square velocity of the molecule/atom given the temperature
 	 * (for calculating escape velocity of the atmosphere).
@@ -155,16 +431,4 @@ public class SystemGenerator {
 	{
 		return Math.sqrt(3 * Constant.MOLAR_GAS * temperature / molWeight * 1000);
 	}
-	
-	/** Returns a pair of mass (in kG) and random seed used to create the mass */
-	private static Pair<Double, Long> planetMass(Random rnd, double minMass, double maxMass)
-	{
-		double mass;
-		long seed;
-		do {
-			seed = rnd.nextLong();
-			mass = Satellite.newMass(new Random(seed));
-		} while( mass > maxMass || mass < minMass );
-		return Pair.<Double, Long>of(mass, seed);
-	}
 }
@@ -0,0 +1,185 @@
+package de.vernideas.lib.stellargen;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import de.vernideas.space.data.VectorD3D;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+/**
+ * Everything needed to rebuild a generated planetary system without repeating the rejected
+ * attempts: the star's spectral class, seed and position, and for each planet and planetoid
+ * the seed of its accepted attempt, in the order they got generated.
+ * <p>
+ * Get one from {@link SystemGenerator#starWithRecipe(String, long, VectorD3D)} and rebuild
+ * the system with {@link SystemGenerator#replay(SystemRecipe)}. Rebuilding takes one attempt per
+ * body (moons still get generated the usual way) and gives the same system, as long as the
+ * sampling mode and the weight tables are the same. {@link #toBytes()} packs a recipe into about
+ * 40 bytes plus 29 per body, for caching.
+ */
+@Accessors(fluent = true)
+@EqualsAndHashCode
+public final class SystemRecipe {
+	public static enum Kind {
+		TERRESTIAL, GASGIANT, PLANETOID
+	}
+
+	private static final Kind[] KINDS = Kind.values();
+	private static final byte FORMAT = 1;
+
+	@Getter private final String spectralClass;
+	@Getter private final long starSeed;
+	@Getter private final VectorD3D position;
+	/** Made in {@link GenerationOptions#legacy() legacy sampling mode}; replaying uses the same one */
+	@Getter private final boolean legacy;
+	private final byte[] kind;
+	private final long[] seed;
+	private final double[] minMass;
+	private final double[] maxMass;
+	/** Attempts the body's moons used, to cut them off the same way when the system ran out of budget */
+	private final int[] moonAttempts;
+
+	private SystemRecipe(String spectralClass, long starSeed, VectorD3D position, boolean legacy,
+			byte[] kind, long[] seed, double[] minMass, double[] maxMass, int[] moonAttempts) {
+		this.spectralClass = spectralClass;
+		this.starSeed = starSeed;
+		this.position = position;
+		this.legacy = legacy;
+		this.kind = kind;
+		this.seed = seed;
+		this.minMass = minMass;
+		this.maxMass = maxMass;
+		this.moonAttempts = moonAttempts;
+	}
+
+	/** Number of planets and planetoids */
+	public int size() {
+		return kind.length;
+	}
+
+	public Kind kind(int body) {
+		return KINDS[kind[body]];
+	}
+
+	/** Seed of the body's accepted attempt */
+	public long seed(int body) {
+		return seed[body];
+	}
+
+	/** Mass range the body got generated for */
+	public double minMass(int body) {
+		return minMass[body];
+	}
+
+	public double maxMass(int body) {
+		return maxMass[body];
+	}
+
+	int moonAttempts(int body) {
+		return moonAttempts[body];
+	}
+
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(40 + 29 * size());
+		try( DataOutputStream out = new DataOutputStream(bytes) ) {
+			out.writeByte(FORMAT);
+			out.writeUTF(spectralClass);
+			out.writeLong(starSeed);
+			out.writeDouble(position.x);
+			out.writeDouble(position.y);
+			out.writeDouble(position.z);
+			out.writeBoolean(legacy);
+			out.writeInt(size());
+			for( int i = 0; i < size(); ++ i ) {
+				out.writeByte(kind[i]);
+				out.writeLong(seed[i]);
+				out.writeDouble(minMass[i]);
+				out.writeDouble(maxMass[i]);
+				out.writeInt(moonAttempts[i]);
+			}
+		} catch( IOException e ) {
+			// Can't happen with an in-memory stream
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public static SystemRecipe fromBytes(@NonNull byte[] data) {
+		try( DataInputStream in = new DataInputStream(new ByteArrayInputStream(data)) ) {
+			byte format = in.readByte();
+			if( format != FORMAT ) {
+				throw new IllegalArgumentException("Unknown recipe format " + format);
+			}
+			String spectralClass = in.readUTF();
+			long starSeed = in.readLong();
+			VectorD3D position = new VectorD3D(in.readDouble(), in.readDouble(), in.readDouble());
+			boolean legacy = in.readBoolean();
+			int size = in.readInt();
+			if( size < 0 || size > data.length / 29 ) {
+				throw new IllegalArgumentException("Invalid body count " + size);
+			}
+			Builder builder = new Builder(spectralClass, starSeed, position, legacy);
+			for( int i = 0; i < size; ++ i ) {
+				int kind = in.readByte();
+				if( kind < 0 || kind >= KINDS.length ) {
+					throw new IllegalArgumentException("Invalid body kind " + kind);
+				}
+				builder.add(KINDS[kind], in.readLong(), in.readDouble(), in.readDouble(), in.readInt());
+			}
+			return builder.build();
+		} catch( IOException e ) {
+			throw new IllegalArgumentException("Truncated recipe", e);
+		}
+	}
+
+	/** Collects the bodies while the system gets generated */
+	static final class Builder {
+		private final String spectralClass;
+		private final long starSeed;
+		private final VectorD3D position;
+		private final boolean legacy;
+		private int size = 0;
+		private byte[] kind = new byte[16];
+		private long[] seed = new long[16];
+		private double[] minMass = new double[16];
+		private double[] maxMass = new double[16];
+		private int[] moonAttempts = new int[16];
+
+		Builder(String spectralClass, long starSeed, VectorD3D position, boolean legacy) {
+			this.spectralClass = spectralClass;
+			this.starSeed = starSeed;
+			this.position = position;
+			this.legacy = legacy;
+		}
+
+		Builder add(Kind kind, long seed, double minMass, double maxMass, long moonAttempts) {
+			if( size == this.kind.length ) {
+				int capacity = size * 2;
+				this.kind = Arrays.copyOf(this.kind, capacity);
+				this.seed = Arrays.copyOf(this.seed, capacity);
+				this.minMass = Arrays.copyOf(this.minMass, capacity);
+				this.maxMass = Arrays.copyOf(this.maxMass, capacity);
+				this.moonAttempts = Arrays.copyOf(this.moonAttempts, capacity);
+			}
+			this.kind[size] = (byte)kind.ordinal();
+			this.seed[size] = seed;
+			this.minMass[size] = minMass;
+			this.maxMass[size] = maxMass;
+			this.moonAttempts[size] = (int)Math.min(moonAttempts, Integer.MAX_VALUE);
+			++ size;
+			return this;
+		}
+
+		SystemRecipe build() {
+			return new SystemRecipe(spectralClass, starSeed, position, legacy, Arrays.copyOf(kind, size), Arrays.copyOf(seed, size),
+					Arrays.copyOf(minMass, size), Arrays.copyOf(maxMass, size), Arrays.copyOf(moonAttempts, size));
+		}
+	}
+}
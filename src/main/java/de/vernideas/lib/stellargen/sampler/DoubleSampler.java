@@ -0,0 +1,75 @@
+package de.vernideas.lib.stellargen.sampler;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+import de.vernideas.lib.stellargen.GenUtil;
+import lombok.NonNull;
+
+/**
+ * Source of random doubles (masses, orbital radii, eccentricities, rotation periods ...),
+ * drawn from the given randomiser. Unlike a <code>Function&lt;Random, Double&gt;</code>, this
+ * doesn't box the result.
+ * <p>
+ * The factories here document how many random numbers each sample uses; the generators
+ * rely on that to stay reproducible. All of them are stateless and can be shared between threads.
+ */
+@FunctionalInterface
+public interface DoubleSampler {
+	double sample(Random rnd);
+
+	/** Apply <code>operator</code> to each sample */
+	default DoubleSampler map(@NonNull DoubleUnaryOperator operator) {
+		return (rnd) -> operator.applyAsDouble(sample(rnd));
+	}
+
+	/** Limit each sample to <code>[min, max]</code> */
+	default DoubleSampler clamp(double min, double max) {
+		if( min > max ) {
+			throw new IllegalArgumentException("Empty range: " + min + " to " + max);
+		}
+		return (rnd) -> Math.max(min, Math.min(max, sample(rnd)));
+	}
+
+	/** Always <code>value</code>; uses no random numbers */
+	static DoubleSampler constant(double value) {
+		return (rnd) -> value;
+	}
+
+	/** Uniform between <code>min</code> and <code>max</code>; one <code>nextDouble()</code> */
+	static DoubleSampler uniform(double min, double max) {
+		return power(min, max, 1.0);
+	}
+
+	/**
+	 * <code>lerp(min, max, u^exponent)</code>; one <code>nextDouble()</code>. Exponents above 1
+	 * favour <code>min</code>, below 1 <code>max</code>.
+	 */
+	static DoubleSampler power(double min, double max, double exponent) {
+		return (rnd) -> GenUtil.lerp(min, max, Math.pow(rnd.nextDouble(), exponent));
+	}
+
+	/** <code>lerp(min, max, min(u1, u2)^exponent)</code>; two <code>nextDouble()</code> */
+	static DoubleSampler powerOfMin(double min, double max, double exponent) {
+		return (rnd) -> GenUtil.lerp(min, max, Math.pow(Math.min(rnd.nextDouble(), rnd.nextDouble()), exponent));
+	}
+
+	/** Normal distribution, not limited; one <code>nextGaussian()</code> */
+	static DoubleSampler normal(double mean, double sigma) {
+		return (rnd) -> rnd.nextGaussian() * sigma + mean;
+	}
+
+	/** Truncated normal distribution, see {@link Truncated#normal}; one <code>nextDouble()</code> */
+	static DoubleSampler normal(double mean, double sigma, double min, double max) {
+		if( min > max ) {
+			throw new IllegalArgumentException("Empty range: " + min + " to " + max);
+		}
+		return (rnd) -> Truncated.normal(rnd, mean, sigma, min, max);
+	}
+
+	/** Adapter for old-style boxed generators */
+	static DoubleSampler of(@NonNull Function<Random, ? extends Number> generator) {
+		return (rnd) -> generator.apply(rnd).doubleValue();
+	}
+}
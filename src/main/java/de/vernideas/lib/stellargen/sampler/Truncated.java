@@ -0,0 +1,89 @@
+package de.vernideas.lib.stellargen.sampler;
+
+import java.util.Random;
+
+import org.apache.commons.math3.special.Erf;
+
+/**
+ * Draw from truncated distributions via their inverse CDF. Each sample uses exactly one
+ * {@link Random#nextDouble()} and never loops, no matter how narrow the range.
+ */
+public final class Truncated {
+	private static final double SQRT2 = Math.sqrt(2.0);
+	private static final double SQRT2PI = Math.sqrt(2.0 * Math.PI);
+	
+	/** Uniform between <code>min</code> (inclusive) and <code>max</code> (exclusive) */
+	public static double uniform(Random rnd, double min, double max) {
+		return min + (max - min) * rnd.nextDouble();
+	}
+	
+	/**
+	 * Normal distribution with the given mean and standard deviation, limited to
+	 * <code>[min, max]</code>. Same distribution as drawing <code>nextGaussian()</code>
+	 * until the result is in range.
+	 */
+	public static double normal(Random rnd, double mean, double sigma, double min, double max) {
+		if( min > max ) {
+			throw new IllegalArgumentException("Empty range: " + min + " to " + max);
+		}
+		double a = (min - mean) / sigma;
+		double b = (max - mean) / sigma;
+		double u = rnd.nextDouble();
+		// Work in the lower tail, where the CDF has the most precision
+		boolean mirrored = (a > 0.0);
+		if( mirrored ) {
+			double tmp = a;
+			a = -b;
+			b = -tmp;
+			u = 1.0 - u;
+		}
+		double pa = normalCdf(a);
+		double pb = normalCdf(b);
+		double z = normalQuantile(pa + u * (pb - pa));
+		// Rounding can push the result just outside of the range
+		z = Math.max(a, Math.min(b, z));
+		return mean + sigma * (mirrored ? -z : z);
+	}
+	
+	/** Standard normal CDF */
+	public static double normalCdf(double z) {
+		return 0.5 * Erf.erfc(-z / SQRT2);
+	}
+	
+	/** Inverse of the standard normal CDF */
+	public static double normalQuantile(double p) {
+		if( p <= 0.0 ) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		if( p >= 1.0 ) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if( p > 0.5 ) {
+			return -normalQuantile(1.0 - p);
+		}
+		double z = -SQRT2 * Erf.erfInv(1.0 - 2.0 * p);
+		if( Double.isInfinite(z) ) {
+			// Too far out for erfInv; start from the asymptotic expansion instead
+			z = -Math.sqrt(-2.0 * Math.log(p));
+		}
+		// erfInv loses precision deep in the tail; polish with Newton steps on the log of the CDF,
+		// which stays well-behaved out there
+		double logP = Math.log(p);
+		for( int i = 0; i < 8; ++ i ) {
+			double cdf = normalCdf(z);
+			double density = Math.exp(-0.5 * z * z) / SQRT2PI;
+			if( cdf <= 0.0 || density <= 0.0 ) {
+				break;
+			}
+			double step = (Math.log(cdf) - logP) * cdf / density;
+			z -= step;
+			if( Math.abs(step) < 1e-14 * Math.max(1.0, Math.abs(z)) ) {
+				break;
+			}
+		}
+		return z;
+	}
+	
+	// Static-only class; no need for instances of it
+	private Truncated() {}
+}
@@ -0,0 +1,204 @@
+package de.vernideas.lib.stellargen.sampler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import de.vernideas.space.data.Pair;
+import lombok.NonNull;
+
+/**
+ * Picks one of a fixed list of values, each with an integer weight.
+ * <p>
+ * {@link #sample(Random)} uses an alias table (Vose's method): one <code>nextDouble()</code>
+ * and constant time, no matter how many values there are. {@link #sampleLegacy(Random)}
+ * gives the same results as the <code>TreeMap</code> lookups older versions used, for
+ * {@link de.vernideas.lib.stellargen.GenerationOptions#legacy() legacy mode}.
+ * <p>
+ * Weight tables can be read from text resources with one <code>value weight</code> pair per
+ * line; empty lines and lines starting with <code>#</code> are ignored. Instances are immutable
+ * and can be shared between threads.
+ */
+public final class WeightedSampler<T> {
+	private final List<T> values;
+	private final int[] weights;
+	/** Sum of the weights before each value */
+	private final int[] cumulative;
+	private final int total;
+	/** Chance to keep the value of a column instead of switching to its alias */
+	private final double[] keep;
+	private final int[] alias;
+
+	public WeightedSampler(@NonNull List<Pair<T, Integer>> entries) {
+		int size = entries.size();
+		if( size == 0 ) {
+			throw new IllegalArgumentException("No values to pick from");
+		}
+		List<T> values = new ArrayList<T>(size);
+		this.weights = new int[size];
+		this.cumulative = new int[size];
+		long sum = 0;
+		for( int i = 0; i < size; ++ i ) {
+			Pair<T, Integer> entry = entries.get(i);
+			if( null == entry.second || entry.second < 0 ) {
+				throw new IllegalArgumentException("Invalid weight for " + entry.first + ": " + entry.second);
+			}
+			values.add(entry.first);
+			weights[i] = entry.second;
+			cumulative[i] = (int)sum;
+			sum += entry.second;
+			if( sum > Integer.MAX_VALUE ) {
+				throw new IllegalArgumentException("Weights add up to more than " + Integer.MAX_VALUE);
+			}
+		}
+		if( sum == 0 ) {
+			throw new IllegalArgumentException("All weights are zero");
+		}
+		this.values = Collections.unmodifiableList(values);
+		this.total = (int)sum;
+
+		// Vose's alias method: fill up the under-full columns from the over-full ones
+		this.keep = new double[size];
+		this.alias = new int[size];
+		double[] scaled = new double[size];
+		int[] small = new int[size];
+		int[] large = new int[size];
+		int smallCount = 0;
+		int largeCount = 0;
+		for( int i = 0; i < size; ++ i ) {
+			scaled[i] = (double)weights[i] * size / total;
+			if( scaled[i] < 1.0 ) {
+				small[smallCount ++] = i;
+			} else {
+				large[largeCount ++] = i;
+			}
+		}
+		while( smallCount > 0 && largeCount > 0 ) {
+			int less = small[-- smallCount];
+			int more = large[-- largeCount];
+			keep[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+			if( scaled[more] < 1.0 ) {
+				small[smallCount ++] = more;
+			} else {
+				large[largeCount ++] = more;
+			}
+		}
+		// Whatever is left is full up to rounding errors
+		while( largeCount > 0 ) {
+			int more = large[-- largeCount];
+			keep[more] = 1.0;
+			alias[more] = more;
+		}
+		while( smallCount > 0 ) {
+			int less = small[-- smallCount];
+			keep[less] = 1.0;
+			alias[less] = less;
+		}
+	}
+
+	/**
+	 * Read a weight table.
+	 *
+	 * @param parser turns the value column into the value
+	 */
+	public static <T> WeightedSampler<T> read(@NonNull Reader reader, @NonNull Function<String, ? extends T> parser) throws IOException {
+		List<Pair<T, Integer>> entries = new ArrayList<Pair<T, Integer>>();
+		BufferedReader lines = new BufferedReader(reader);
+		int lineNumber = 0;
+		String line = lines.readLine();
+		while( null != line ) {
+			++ lineNumber;
+			line = line.trim();
+			if( !line.isEmpty() && !line.startsWith("#") ) {
+				String[] columns = line.split("\\s+");
+				if( columns.length != 2 ) {
+					throw new IllegalArgumentException("Line " + lineNumber + ": expected a value and a weight, got \"" + line + "\"");
+				}
+				try {
+					entries.add(Pair.<T, Integer>of(parser.apply(columns[0]), Integer.valueOf(columns[1])));
+				} catch( IllegalArgumentException e ) {
+					throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+				}
+			}
+			line = lines.readLine();
+		}
+		return new WeightedSampler<T>(entries);
+	}
+
+	/** Read a weight table from a (UTF-8) classpath resource */
+	public static <T> WeightedSampler<T> load(@NonNull String resource, @NonNull Function<String, ? extends T> parser) {
+		try(
+			InputStream in = WeightedSampler.class.getResourceAsStream(resource)
+		) {
+			if( null == in ) {
+				throw new IllegalArgumentException("Resource not found: " + resource);
+			}
+			return read(new InputStreamReader(in, "UTF-8"), parser);
+		} catch( IOException e ) {
+			throw new UncheckedIOException("Can't read " + resource, e);
+		}
+	}
+
+	/** Index of a value, drawn with one <code>nextDouble()</code> */
+	public int sampleIndex(@NonNull Random rnd) {
+		double u = rnd.nextDouble() * keep.length;
+		int column = Math.min((int)u, keep.length - 1);
+		return (u - column < keep[column] ? column : alias[column]);
+	}
+
+	/** Value drawn with one <code>nextDouble()</code> */
+	public T sample(@NonNull Random rnd) {
+		return values.get(sampleIndex(rnd));
+	}
+
+	/** Index of a value, drawn the way older versions did, with one <code>nextInt(totalWeight())</code> */
+	public int sampleLegacyIndex(@NonNull Random rnd) {
+		int pick = rnd.nextInt(total);
+		// Last value starting at or before the pick; values with a weight of 0 never match
+		int index = Arrays.binarySearch(cumulative, pick);
+		if( index < 0 ) {
+			return -index - 2;
+		}
+		while( index + 1 < cumulative.length && cumulative[index + 1] == pick ) {
+			++ index;
+		}
+		return index;
+	}
+
+	/** Value drawn the way older versions did, see {@link #sampleLegacyIndex(Random)} */
+	public T sampleLegacy(@NonNull Random rnd) {
+		return values.get(sampleLegacyIndex(rnd));
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	/** All values, in table order */
+	public List<T> values() {
+		return values;
+	}
+
+	public T value(int index) {
+		return values.get(index);
+	}
+
+	public int weight(int index) {
+		return weights[index];
+	}
+
+	public int totalWeight() {
+		return total;
+	}
+}
@@ -0,0 +1,106 @@
+package de.vernideas.space.data;
+
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import de.vernideas.space.data.planetaryclass.PlanetaryClass;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * A star's planetoids in summary form: the mass, orbital radius and class of each of them,
+ * without building the planetoids themselves. Individual planetoids get built on request,
+ * always the same for the same index, and aren't kept.
+ */
+@ToString(of = {"count", "innerRadius", "outerRadius", "totalMass"})
+@Accessors(fluent = true)
+public final class Belt {
+	/** Number of planetoids */
+	@Getter private final int count;
+	/** Smallest orbital radius (semimajor axis) of the planetoids in m; 0 if there are none */
+	@Getter private final double innerRadius;
+	/** Largest orbital radius of the planetoids in m; 0 if there are none */
+	@Getter private final double outerRadius;
+	/** In kg */
+	@Getter private final double totalMass;
+	private final double[] mass;
+	private final double[] radius;
+	private final PlanetaryClass[] planetaryClass;
+	private final IntFunction<Planet> materialiser;
+
+	/**
+	 * The arrays have one entry per planetoid and aren't copied.
+	 *
+	 * @param materialiser builds the planetoid with the given index
+	 */
+	public Belt(@NonNull double[] mass, @NonNull double[] radius, @NonNull PlanetaryClass[] planetaryClass, @NonNull IntFunction<Planet> materialiser) {
+		if( radius.length != mass.length || planetaryClass.length != mass.length ) {
+			throw new IllegalArgumentException("Array lengths differ: " + mass.length + ", " + radius.length + ", " + planetaryClass.length);
+		}
+		this.count = mass.length;
+		this.mass = mass;
+		this.radius = radius;
+		this.planetaryClass = planetaryClass;
+		this.materialiser = materialiser;
+
+		double inner = (count > 0 ? Double.POSITIVE_INFINITY : 0.0);
+		double outer = 0.0;
+		double total = 0.0;
+		for( int i = 0; i < count; ++ i ) {
+			inner = Math.min(inner, radius[i]);
+			outer = Math.max(outer, radius[i]);
+			total += mass[i];
+		}
+		this.innerRadius = inner;
+		this.outerRadius = outer;
+		this.totalMass = total;
+	}
+
+	public double mass(int index) {
+		return mass[index];
+	}
+
+	/** Orbital radius (semimajor axis) in m */
+	public double radius(int index) {
+		return radius[index];
+	}
+
+	public PlanetaryClass planetaryClass(int index) {
+		return planetaryClass[index];
+	}
+
+	/** Number of planetoids per class, in the order the classes first show up */
+	public Map<PlanetaryClass, Integer> classMix() {
+		Map<PlanetaryClass, Integer> result = new LinkedHashMap<PlanetaryClass, Integer>();
+		for( PlanetaryClass pClass : planetaryClass ) {
+			result.merge(pClass, 1, Integer::sum);
+		}
+		return result;
+	}
+
+	/** Build the planetoid with the given index; a new instance on each call */
+	public Planet planetoid(int index) {
+		if( index < 0 || index >= count ) {
+			throw new IndexOutOfBoundsException("Planetoid " + index + " of " + count);
+		}
+		return materialiser.apply(index);
+	}
+
+	/** All planetoids, built on each access; copy the list to keep them around */
+	public List<Planet> planetoids() {
+		return new AbstractList<Planet>() {
+			@Override public Planet get(int index) {
+				return planetoid(index);
+			}
+
+			@Override public int size() {
+				return count;
+			}
+		};
+	}
+}
@@ -0,0 +1,283 @@
+package de.vernideas.space.data;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+/**
+ * Derived physical values of many bodies at once, from plain arrays with one entry per body. The
+ * formulas are the ones {@link Satellite} uses, so each result is the same as what the body's own
+ * getter returns; the batch versions skip the objects, caches and virtual calls.
+ * <p>
+ * With an {@link #executor(Executor) executor}, the arrays get split into chunks which the
+ * executor's threads and the calling thread work through together.
+ */
+@Accessors(fluent = true)
+public final class BodyPhysics {
+	/** Bodies per chunk when working in parallel */
+	private static final int CHUNK = 1 << 14;
+	private static final double SURFACE_GRAVITY_UNIT = Math.pow(Constant.DISTANCE_UNIT, 3.0);
+
+	// Limits of habitable(); the molecular limit has to keep water vapour, but not helium
+	public static final double MIN_HABITABLE_MOLECULAR_LIMIT = 4.00;
+	public static final double MAX_HABITABLE_MOLECULAR_LIMIT = 18.02;
+	/** In K */
+	public static final double MIN_HABITABLE_TEMPERATURE = 220.0;
+	/** In K */
+	public static final double MAX_HABITABLE_TEMPERATURE = 330.0;
+	/** In m/s^2 */
+	public static final double MIN_HABITABLE_GRAVITY = Constant.EARTH_SURFACE_GRAVITY * 0.5;
+	/** In m/s^2 */
+	public static final double MAX_HABITABLE_GRAVITY = Constant.EARTH_SURFACE_GRAVITY * 1.5;
+
+	/** Number of bodies */
+	@Getter private final int size;
+	private final double[] mass;
+	/** In m */
+	private final double[] diameter;
+	/** Own orbit around the parent body, in m */
+	private final double[] orbitRadius;
+	private final double[] eccentricity;
+	/** 0 for bodies without an orbit */
+	private final double[] parentMass;
+	/** Orbital radius of the main body (the planet or planetoid itself, or the one a moon orbits), in m */
+	private final double[] starDistance;
+	/** In W; 0 for bodies without a star */
+	private final double[] starLuminosity;
+	/** Works through the chunks along with the calling thread; null to do everything on the calling thread */
+	@Getter private Executor executor;
+
+	/** The arrays have one entry per body and aren't copied */
+	public BodyPhysics(@NonNull double[] mass, @NonNull double[] diameter, @NonNull double[] orbitRadius,
+			@NonNull double[] eccentricity, @NonNull double[] parentMass, @NonNull double[] starDistance,
+			@NonNull double[] starLuminosity) {
+		int size = mass.length;
+		if( diameter.length != size || orbitRadius.length != size || eccentricity.length != size
+				|| parentMass.length != size || starDistance.length != size || starLuminosity.length != size ) {
+			throw new IllegalArgumentException("Array lengths differ: " + size + ", " + diameter.length + ", "
+					+ orbitRadius.length + ", " + eccentricity.length + ", " + parentMass.length + ", "
+					+ starDistance.length + ", " + starLuminosity.length);
+		}
+		this.size = size;
+		this.mass = mass;
+		this.diameter = diameter;
+		this.orbitRadius = orbitRadius;
+		this.eccentricity = eccentricity;
+		this.parentMass = parentMass;
+		this.starDistance = starDistance;
+		this.starLuminosity = starLuminosity;
+	}
+
+	/** Arrays filled from the bodies, in the same order */
+	public static BodyPhysics of(@NonNull List<? extends Satellite> bodies) {
+		int size = bodies.size();
+		double[] mass = new double[size];
+		double[] diameter = new double[size];
+		double[] orbitRadius = new double[size];
+		double[] eccentricity = new double[size];
+		double[] parentMass = new double[size];
+		double[] starDistance = new double[size];
+		double[] starLuminosity = new double[size];
+		for( int i = 0; i < size; ++ i ) {
+			Satellite body = bodies.get(i);
+			mass[i] = body.mass;
+			diameter[i] = body.diameter;
+			if( null != body.orbit && null != body.parent ) {
+				orbitRadius[i] = body.orbit.radius;
+				eccentricity[i] = body.orbit.eccentricity;
+				parentMass[i] = body.parent.mass;
+			}
+			Star star = body.mainStar();
+			if( null != star ) {
+				starDistance[i] = body.mainBody().orbit.radius;
+				starLuminosity[i] = star.luminosity;
+			}
+		}
+		return new BodyPhysics(mass, diameter, orbitRadius, eccentricity, parentMass, starDistance, starLuminosity);
+	}
+
+	public BodyPhysics executor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/** In kg/m^3, see {@link Satellite#density()} */
+	public double[] density() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = density(mass[i], diameter[i]);
+			}
+		});
+	}
+
+	/** In m/s^2, see {@link Satellite#surfaceGravity()} */
+	public double[] surfaceGravity() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = surfaceGravity(mass[i], diameter[i]);
+			}
+		});
+	}
+
+	/** In m/s, see {@link Satellite#escapeVelocity()} */
+	public double[] escapeVelocity() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = escapeVelocity(mass[i], diameter[i]);
+			}
+		});
+	}
+
+	/** In m, see {@link Satellite#hillsRadius()} */
+	public double[] hillsRadius() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = hillsRadius(mass[i], orbitRadius[i], eccentricity[i], parentMass[i]);
+			}
+		});
+	}
+
+	/** In m, see {@link Satellite#exclusionZone()} */
+	public double[] exclusionZone() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = exclusionZone(mass[i], orbitRadius[i], parentMass[i]);
+			}
+		});
+	}
+
+	/** See {@link Satellite#siderealPeriod()} */
+	public double[] siderealPeriod() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = siderealPeriod(orbitRadius[i], parentMass[i]);
+			}
+		});
+	}
+
+	/** In K, see {@link Satellite#blackbodyTemperature()} */
+	public double[] blackbodyTemperature() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = blackbodyTemperature(starDistance[i], starLuminosity[i]);
+			}
+		});
+	}
+
+	/** Smallest molecular weight retained, see {@link Satellite#molecularLimit()} */
+	public double[] molecularLimit() {
+		return run((from, to, result) -> {
+			for( int i = from; i < to; ++ i ) {
+				result[i] = molecularLimit(mass[i], diameter[i], blackbodyTemperature(starDistance[i], starLuminosity[i]));
+			}
+		});
+	}
+
+	/** In kg/m^3; 0 without a mass and diameter */
+	public static double density(double mass, double diameter) {
+		if( mass > 0.0 && diameter > 0.0 ) {
+			return mass * Constant.MASS_UNIT / (Math.PI * diameter * diameter * diameter / 6.0);
+		}
+		return 0.0;
+	}
+
+	/** In m/s^2; 0 without a mass and diameter */
+	public static double surfaceGravity(double mass, double diameter) {
+		if( mass > 0.0 && diameter > 0.0 ) {
+			return Constant.G * 4 * mass / diameter / diameter * SURFACE_GRAVITY_UNIT / Constant.TIME_UNIT / Constant.TIME_UNIT;
+		}
+		return 0.0;
+	}
+
+	/** At the equator, in m/s; 0 without a mass and diameter */
+	public static double escapeVelocity(double mass, double diameter) {
+		return Math.sqrt(surfaceGravity(mass, diameter) * diameter);
+	}
+
+	/** In m; 0 without a parent mass */
+	public static double hillsRadius(double mass, double orbitRadius, double eccentricity, double parentMass) {
+		if( parentMass > 0.0 ) {
+			double hillsRadiusCircle = orbitRadius * Math.pow(mass / 3.0 / parentMass, 1.0 / 3.0);
+			return (1.0 - eccentricity) * hillsRadiusCircle;
+		}
+		return 0.0;
+	}
+
+	/** Space other bodies keep clear of, in m; 0 without a parent mass */
+	public static double exclusionZone(double mass, double orbitRadius, double parentMass) {
+		if( parentMass > 0.0 ) {
+			return orbitRadius * Math.pow(mass / 3.0 / parentMass, 1.0 / 3.0) * 5;
+		}
+		return 0.0;
+	}
+
+	/** 0 without a parent mass */
+	public static double siderealPeriod(double orbitRadius, double parentMass) {
+		if( parentMass > 0.0 ) {
+			return Constant.TWO_PI_SQRT_INV_G * Math.sqrt(Math.pow(orbitRadius, 3) / parentMass);
+		}
+		return 0.0;
+	}
+
+	/** In K, assuming albedo 0; the temperature of the universe without a shining star */
+	public static double blackbodyTemperature(double starDistance, double starLuminosity) {
+		if( starLuminosity > 0.0 ) {
+			return Math.max(Math.pow(starLuminosity / (16 * Constant.STEFAN_BOLTZMANN_PI * starDistance * starDistance), 0.25),
+					Constant.UNIVERSE_TEMPERATURE);
+		}
+		return Constant.UNIVERSE_TEMPERATURE;
+	}
+
+	/** In m/s; 0 without a positive rotation period (in minutes) */
+	public static double equatorialSpeed(double diameter, double rotationPeriod) {
+		if( rotationPeriod > 0.0 ) {
+			return Math.PI * diameter / Math.abs(rotationPeriod * Constant.TIME_UNIT);
+		}
+		return 0.0;
+	}
+
+	/** Length of a day for the rotation period, going by the main body's sidereal period; 0 without the latter */
+	public static double dayLength(double rotationPeriod, double mainSiderealPeriod) {
+		if( mainSiderealPeriod > 0.0 ) {
+			return rotationPeriod / (1.0 - rotationPeriod / mainSiderealPeriod);
+		}
+		return 0.0;
+	}
+
+	/** Mass above which a body gathers gas, from the main body's pericenter (in m) and the star's original luminosity (in W) */
+	public static double criticalMass(double mainPericenter, double starOriginalLuminosity) {
+		return 1.2e-5 * Constant.SOLAR_MASS * Math.pow(mainPericenter / Constant.AU * Math.sqrt(starOriginalLuminosity / Constant.SOLAR_LUM), -0.75);
+	}
+
+	/** True if people could live there without specific technology, see {@link Satellite#habitable()} */
+	public static boolean habitable(double molecularLimit, double blackbodyTemperature, double surfaceGravity) {
+		return molecularLimit < MAX_HABITABLE_MOLECULAR_LIMIT && molecularLimit > MIN_HABITABLE_MOLECULAR_LIMIT
+				&& blackbodyTemperature >= MIN_HABITABLE_TEMPERATURE && blackbodyTemperature <= MAX_HABITABLE_TEMPERATURE
+				&& surfaceGravity >= MIN_HABITABLE_GRAVITY && surfaceGravity <= MAX_HABITABLE_GRAVITY;
+	}
+
+	/** Smallest molecular weight retained at the given temperature; 0 without a mass and diameter */
+	public static double molecularLimit(double mass, double diameter, double blackbodyTemperature) {
+		if( mass > 0.0 && diameter > 0.0 ) {
+			// Squared by hand: Math.pow() can round differently once the JIT compiles it
+			double speed = escapeVelocity(mass, diameter) / 9.15;
+			return 1000 * 3.0 * Constant.MOLAR_GAS * blackbodyTemperature / (speed * speed);
+		}
+		return 0.0;
+	}
+
+	/** Fills part of the result array */
+	private interface Kernel {
+		void apply(int from, int to, double[] result);
+	}
+
+	private double[] run(Kernel kernel) {
+		double[] result = new double[size];
+		int chunks = (size + CHUNK - 1) / CHUNK;
+		SharedWork.run(chunks, (chunk) -> kernel.apply(chunk * CHUNK, Math.min(size, (chunk + 1) * CHUNK), result), executor);
+		return result;
+	}
+}
@@ -0,0 +1,86 @@
+package de.vernideas.space.data;
+
+/**
+ * Values a {@link Satellite} calculates on demand and caches, with what each of them depends on:
+ * the satellite's own inputs, inputs of the bodies it orbits, or other cached values. Changing
+ * an input clears exactly the cached values depending on it, directly or through other cached
+ * values, see {@link #affectedBy(Input...)}.
+ * <p>
+ * The constants are in dependency order; each one only depends on the ones before it.
+ */
+enum Derived {
+	MAIN_BODY(Input.PARENT, Input.ANCESTRY),
+	MAIN_STAR(MAIN_BODY),
+	SIDEREAL_PERIOD(Input.ORBIT, Input.PARENT, Input.PARENT_MASS),
+	DAY_LENGTH(Input.ROTATION, Input.MAIN_SIDEREAL_PERIOD, MAIN_BODY, SIDEREAL_PERIOD),
+	HILLS_RADIUS(Input.MASS, Input.ORBIT, Input.PARENT, Input.PARENT_MASS),
+	EXCLUSION_ZONE(Input.MASS, Input.ORBIT, Input.PARENT, Input.PARENT_MASS),
+	SURFACE_GRAVITY(Input.MASS, Input.DIAMETER),
+	ESCAPE_VELOCITY(Input.MASS, Input.DIAMETER, SURFACE_GRAVITY),
+	EQUATORIAL_SPEED(Input.ROTATION, Input.DIAMETER),
+	DENSITY(Input.MASS, Input.DIAMETER),
+	CRITICAL_MASS(Input.MAIN_ORBIT, Input.STAR_ORIGINAL_LUMINOSITY, MAIN_BODY, MAIN_STAR),
+	BLACKBODY_TEMPERATURE(Input.MAIN_ORBIT, Input.STAR_LUMINOSITY, MAIN_BODY, MAIN_STAR),
+	MOLECULAR_LIMIT(Input.MASS, Input.DIAMETER, BLACKBODY_TEMPERATURE, ESCAPE_VELOCITY),
+	/** The class gets checked against about everything else */
+	PLANETARY_CLASS((Object[])Input.values());
+
+	/** What a cached value can depend on */
+	enum Input {
+		MASS, DIAMETER, ORBIT, ROTATION, MATERIAL, PLANETARY_CLASS,
+		/** Which body this one orbits */
+		PARENT,
+		/** Which bodies the parent orbits, up to the star */
+		ANCESTRY,
+		PARENT_MASS,
+		/** Orbit of the main body (the planet or planetoid orbiting the star); the own one for main bodies */
+		MAIN_ORBIT,
+		/** Orbit of the main body or the star's mass */
+		MAIN_SIDEREAL_PERIOD,
+		STAR_LUMINOSITY,
+		STAR_ORIGINAL_LUMINOSITY
+	}
+
+	/** Cached values depending on each input */
+	private static final int[] AFFECTED = new int[Input.values().length];
+
+	static {
+		for( Input input : Input.values() ) {
+			int mask = 0;
+			for( Derived value : values() ) {
+				if( value.dependsOn(input, mask) ) {
+					mask |= value.bit();
+				}
+			}
+			AFFECTED[input.ordinal()] = mask;
+		}
+	}
+
+	private final Object[] dependencies;
+
+	private Derived(Object ... dependencies) {
+		this.dependencies = dependencies;
+	}
+
+	private boolean dependsOn(Input input, int affected) {
+		for( Object dependency : dependencies ) {
+			if( dependency == input || (dependency instanceof Derived && (affected & ((Derived)dependency).bit()) != 0) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int bit() {
+		return 1 << ordinal();
+	}
+
+	/** Bit mask of the cached values to clear when any of the inputs change */
+	static int affectedBy(Input ... inputs) {
+		int mask = 0;
+		for( Input input : inputs ) {
+			mask |= AFFECTED[input.ordinal()];
+		}
+		return mask;
+	}
+}
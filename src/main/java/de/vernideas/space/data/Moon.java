@@ -16,4 +16,9 @@ public class Moon extends Satellite implements Location {
 	@Override public Planet parent() {
 		return (Planet)this.parent;
 	};
+	
+	/** Immutable snapshot of the moon, see {@link Planet#freeze()} */
+	public MoonView freeze() {
+		return new MoonView(this);
+	}
 }
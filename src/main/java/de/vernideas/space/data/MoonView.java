@@ -0,0 +1,11 @@
+package de.vernideas.space.data;
+
+import lombok.ToString;
+
+/** Immutable snapshot of a {@link Moon}, see {@link Moon#freeze()} */
+@ToString(callSuper = true)
+public final class MoonView extends SatelliteView {
+	MoonView(Moon moon) {
+		super(moon);
+	}
+}
@@ -0,0 +1,143 @@
+package de.vernideas.space.data;
+
+import java.util.Arrays;
+
+/**
+ * Orbital ranges taken by the planets of a star, see {@link Star#orbitFree(double, double, double)}:
+ * each planet's orbit widened by its exclusion zone, and the resonance gaps it causes. Both are kept
+ * sorted by where they start, together with the furthest end up to there, so checking an orbit is a
+ * binary search. Adding a planet updates it in place.
+ */
+final class OrbitIndex {
+	// Resonance distances (for gaps)
+	// Strong - 2:1, 3:1
+	private static final double RESONANCE_2_1 = Math.pow(2.0, -2.0/3.0);
+	private static final double RESONANCE_3_1 = Math.pow(3.0, -2.0/3.0);
+	// Medium - 4:1, 5:2, 7:3
+	private static final double RESONANCE_4_1 = Math.pow(4.0, -2.0/3.0);
+	private static final double RESONANCE_5_2 = Math.pow(5.0/2.0, -2.0/3.0);
+	private static final double RESONANCE_7_3 = Math.pow(7.0/3.0, -2.0/3.0);
+	// Weak - 9:2, 7:2, 10:3, 8:3, 5:3, 9:4, 11:5, 11:6 (not sure if we need to bother)
+
+	private static final double[] RESONANCES = {RESONANCE_2_1, RESONANCE_3_1, RESONANCE_4_1, RESONANCE_5_2, RESONANCE_7_3};
+	/** Gap width to each side, as a fraction of the planet's orbital radius: 1/1000 for the strong ones, 1/5000 for the others */
+	private static final double[] RESONANCE_WIDTHS = {1000.0, 1000.0, 5000.0, 5000.0, 5000.0};
+
+	/** Orbits including the exclusion zones, in m; a new orbit can't touch them */
+	private final Ranges zones = new Ranges();
+	/** Resonance gaps, in m; a new orbital radius can't be strictly inside them */
+	private final Ranges gaps = new Ranges();
+
+	void add(Planet planet) {
+		Orbit orbit = planet.orbit;
+		if( null == orbit ) {
+			return;
+		}
+		// Enforce a 0.1 AU minimum distance between planets
+		double exclusionZone = Math.max(planet.exclusionZone(), Constant.AU * 0.1);
+		zones.add(orbit.pericenter - exclusionZone, orbit.apocenter + exclusionZone, 0.0, 0.0);
+		for( int i = 0; i < RESONANCES.length; ++ i ) {
+			double center = orbit.radius * RESONANCES[i];
+			double width = orbit.radius / RESONANCE_WIDTHS[i];
+			gaps.add(center - width, center + width, center, width);
+		}
+	}
+
+	/** True if the orbit going from the pericenter to the apocenter touches a planet's orbit, or its radius is in a resonance gap */
+	boolean taken(double radius, double pericenter, double apocenter) {
+		int last = zones.lastStartingAt(apocenter);
+		if( last >= 0 && zones.maxTo[last] >= pericenter ) {
+			return true;
+		}
+		// Gap ends are rounded, so check the candidates the same way the gaps got defined
+		for( int i = gaps.lastStartingAt(radius); i >= 0 && gaps.maxTo[i] >= radius; -- i ) {
+			if( gaps.to[i] >= radius && Math.abs(gaps.center[i] - radius) < gaps.width[i] ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** See {@link Star#freeOrbits(double, double)} */
+	double[] free(double min, double max, double eccentricity) {
+		double[] result = new double[2 * (zones.size + gaps.size) + 2];
+		int size = 0;
+		double cursor = min;
+		int zone = 0;
+		int gap = 0;
+		// Both are sorted by start, so go through them merged
+		while( (zone < zones.size || gap < gaps.size) && cursor < max ) {
+			double from, to;
+			double zoneFrom = (zone < zones.size ? zones.from[zone] / (1.0 + eccentricity) : Double.POSITIVE_INFINITY);
+			if( gap >= gaps.size || zoneFrom <= gaps.from[gap] ) {
+				from = zoneFrom;
+				to = zones.to[zone ++] / (1.0 - eccentricity);
+			} else {
+				from = gaps.from[gap];
+				to = gaps.to[gap ++];
+			}
+			if( from > cursor ) {
+				result[size ++] = cursor;
+				result[size ++] = Math.min(from, max);
+			}
+			cursor = Math.max(cursor, to);
+		}
+		if( cursor < max ) {
+			result[size ++] = cursor;
+			result[size ++] = max;
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/** Ranges sorted by start */
+	private static final class Ranges {
+		private double[] from = new double[8];
+		private double[] to = new double[8];
+		/** Furthest end of this and all the ranges before it */
+		private double[] maxTo = new double[8];
+		/** Exact definition of resonance gaps */
+		private double[] center = new double[8];
+		private double[] width = new double[8];
+		private int size = 0;
+
+		private void add(double from, double to, double center, double width) {
+			if( size == this.from.length ) {
+				int capacity = size * 2;
+				this.from = Arrays.copyOf(this.from, capacity);
+				this.to = Arrays.copyOf(this.to, capacity);
+				this.maxTo = Arrays.copyOf(this.maxTo, capacity);
+				this.center = Arrays.copyOf(this.center, capacity);
+				this.width = Arrays.copyOf(this.width, capacity);
+			}
+			int index = lastStartingAt(from) + 1;
+			int moved = size - index;
+			System.arraycopy(this.from, index, this.from, index + 1, moved);
+			System.arraycopy(this.to, index, this.to, index + 1, moved);
+			System.arraycopy(this.center, index, this.center, index + 1, moved);
+			System.arraycopy(this.width, index, this.width, index + 1, moved);
+			this.from[index] = from;
+			this.to[index] = to;
+			this.center[index] = center;
+			this.width[index] = width;
+			++ size;
+			for( int i = index; i < size; ++ i ) {
+				maxTo[i] = (i > 0 ? Math.max(maxTo[i - 1], this.to[i]) : this.to[i]);
+			}
+		}
+
+		/** Index of the last range starting at or before the value, -1 if there is none */
+		private int lastStartingAt(double value) {
+			int low = 0;
+			int high = size;
+			while( low < high ) {
+				int mid = (low + high) >>> 1;
+				if( from[mid] <= value ) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low - 1;
+		}
+	}
+}
@@ -14,7 +14,7 @@ import lombok.experimental.Accessors;
 /** Encompasses planets and planetoids */
 @ToString(of={"moons", "minor", "capitalPlace"}, callSuper=true)
 @Accessors(fluent = true)
-@EqualsAndHashCode(callSuper=true)
+@EqualsAndHashCode(callSuper=true, exclude="indexedBy")
 public class Planet extends Satellite implements Location {
 	@NonNull public final List<Moon> moons;
 	public final boolean minor;
@@ -23,6 +23,9 @@ public class Planet extends Satellite implements Location {
 	
 	@Getter @Setter private boolean valid;
 	
+	/** Star whose orbit index has this planet in it, see {@link Star#orbitFree(double, double, double)} */
+	private Star indexedBy;
+	
 	public Planet(String name, boolean minor)
 	{
 		super(name);
@@ -35,6 +38,22 @@ public class Planet extends Satellite implements Location {
 		return (Star)this.parent;
 	};
 	
+	@Override protected List<Moon> satellites() {
+		return moons;
+	}
+	
+	@Override void invalidate(int values) {
+		super.invalidate(values);
+		if( null != indexedBy && (values & Derived.EXCLUSION_ZONE.bit()) != 0 ) {
+			indexedBy.orbitsChanged();
+			indexedBy = null;
+		}
+	}
+	
+	void indexedBy(Star star) {
+		this.indexedBy = star;
+	}
+	
 	@Override public StellarObject name(String name) {
 		super.name(name);
 		int num = 1;
@@ -48,5 +67,13 @@ public class Planet extends Satellite implements Location {
 		return this;
 	}
 	
+	/**
+	 * Immutable snapshot of the planet and its moons, for sharing between threads. Call it from the
+	 * thread which built or last changed the planet.
+	 */
+	public PlanetView freeze() {
+		return new PlanetView(this);
+	}
+	
 	public static Planet byID(int id) { return null; }
 }
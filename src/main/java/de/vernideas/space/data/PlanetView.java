@@ -0,0 +1,27 @@
+package de.vernideas.space.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/** Immutable snapshot of a {@link Planet} and its moons, see {@link Planet#freeze()} */
+@ToString(callSuper = true)
+@Accessors(fluent = true)
+public final class PlanetView extends SatelliteView {
+	@Getter private final boolean minor;
+	@Getter private final List<MoonView> moons;
+
+	PlanetView(Planet planet) {
+		super(planet);
+		this.minor = planet.minor;
+		List<MoonView> moons = new ArrayList<MoonView>(planet.moons.size());
+		for( Moon moon : planet.moons ) {
+			moons.add(moon.freeze());
+		}
+		this.moons = Collections.unmodifiableList(moons);
+	}
+}
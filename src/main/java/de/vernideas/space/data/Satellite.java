@@ -1,8 +1,11 @@
 package de.vernideas.space.data;
 
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
+import de.vernideas.space.data.Derived.Input;
 import de.vernideas.space.data.planetaryclass.PlanetaryClass;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -30,11 +33,80 @@ public abstract class Satellite extends StellarObject {
 		}
 	};
 
+	// Cached values to clear on changes, see Derived
+	private static final int ON_MASS = Derived.affectedBy(Input.MASS);
+	private static final int ON_DIAMETER = Derived.affectedBy(Input.DIAMETER);
+	private static final int ON_ORBIT = Derived.affectedBy(Input.ORBIT);
+	private static final int ON_MAIN_ORBIT = Derived.affectedBy(Input.ORBIT, Input.MAIN_ORBIT, Input.MAIN_SIDEREAL_PERIOD);
+	private static final int ON_ROTATION = Derived.affectedBy(Input.ROTATION);
+	private static final int ON_MATERIAL = Derived.affectedBy(Input.MATERIAL);
+	private static final int ON_PLANETARY_CLASS = Derived.affectedBy(Input.PLANETARY_CLASS);
+	private static final int ON_PARENT = Derived.affectedBy(Input.values());
+	// ... and in the satellites orbiting this one
+	private static final int ON_PARENT_MASS = Derived.affectedBy(Input.PARENT_MASS);
+	private static final int ON_MAIN_BODY_ORBIT = Derived.affectedBy(Input.MAIN_ORBIT, Input.MAIN_SIDEREAL_PERIOD);
+	private static final int ON_ANCESTRY = Derived.affectedBy(Input.ANCESTRY, Input.MAIN_ORBIT, Input.MAIN_SIDEREAL_PERIOD,
+			Input.STAR_LUMINOSITY, Input.STAR_ORIGINAL_LUMINOSITY);
+
+	// Planetary mass curve, in Yg, over a uniform random number: A * e^(K * x) + B * x
+	private static final double MASS_CURVE_A = 0.0001814813990910743;
+	private static final double MASS_CURVE_K = 25.647952850461436;
+	private static final double MASS_CURVE_B = 19765.338232060116;
+	
 	/** Generate a random planetary mass */
 	public static double newMass(Random random) {
+		return massCurve(random.nextDouble());
+	}
+	
+	/**
+	 * Generate a random planetary mass between <code>minMass</code> and <code>maxMass</code>,
+	 * with the same distribution as {@link #newMass(Random)} limited to that range.
+	 * Uses one random number, no matter how narrow the range.
+	 * 
+	 * @return the mass, or NaN if the range doesn't overlap with the possible masses
+	 */
+	public static double newMass(Random random, double minMass, double maxMass) {
+		// Always draw, so the random sequence doesn't depend on the range
 		double rnd = random.nextDouble();
-		double mass = 0.0001814813990910743 * Math.exp(25.647952850461436 * rnd) + 19765.338232060116 * rnd;
-		return mass * Constant.YOTTAGRAM;
+		if( !massRangePossible(minMass, maxMass) ) {
+			return Double.NaN;
+		}
+		double minQ = massQuantile(minMass);
+		double maxQ = massQuantile(maxMass);
+		// Rounding might leave us a tiny bit outside of the range
+		return Math.max(minMass, Math.min(maxMass, massCurve(minQ + (maxQ - minQ) * rnd)));
+	}
+	
+	/** Can {@link #newMass(Random)} return anything between <code>minMass</code> and <code>maxMass</code>? */
+	public static boolean massRangePossible(double minMass, double maxMass) {
+		return minMass <= maxMass && maxMass >= massCurve(0.0) && minMass <= massCurve(1.0);
+	}
+	
+	private static double massCurve(double x) {
+		return (MASS_CURVE_A * Math.exp(MASS_CURVE_K * x) + MASS_CURVE_B * x) * Constant.YOTTAGRAM;
+	}
+	
+	/** Inverse of the mass curve: the fraction of {@link #newMass(Random)} results below the given mass */
+	public static double massQuantile(double mass) {
+		double target = mass / Constant.YOTTAGRAM;
+		if( !(target > MASS_CURVE_A) ) {
+			return 0.0;
+		}
+		if( target >= MASS_CURVE_A * Math.exp(MASS_CURVE_K) + MASS_CURVE_B ) {
+			return 1.0;
+		}
+		// Both terms are positive, so each one alone gives an upper bound for the result. The curve is
+		// convex and increasing, so Newton's method from an upper bound converges monotonically.
+		double x = Math.min(1.0, Math.min(Math.log(target / MASS_CURVE_A) / MASS_CURVE_K, target / MASS_CURVE_B));
+		for( int i = 0; i < 100; ++ i ) {
+			double exp = MASS_CURVE_A * Math.exp(MASS_CURVE_K * x);
+			double step = (exp + MASS_CURVE_B * x - target) / (MASS_CURVE_K * exp + MASS_CURVE_B);
+			x -= step;
+			if( step < 1e-15 ) {
+				break;
+			}
+		}
+		return Math.max(0.0, Math.min(1.0, x));
 	}
 	
 	/**
@@ -95,35 +167,27 @@ public abstract class Satellite extends StellarObject {
 	@Getter protected double rotationPeriod;
 	/** Rotation time around the parent. In minutes, calculated field */
 	private double siderealPeriod;
-	private boolean siderealPeriodCalculated = false;
 	
 	/** Day length in minutes, rounded to be useful in game terms. For comparison, Moon = 42524. Can be negative. */
 	private double dayLength;
-	private boolean dayLengthCalculated = false;
 	
 	/** Hill's sphere radius of this satellite in m. Will be almost too small for moons. */
 	private double hillsRadius;
-	private boolean hillsRadiusCalculated = false;
 	
 	/** Planetary exclusion zone (important for major planets) in mAU. */
 	private double exclusionZone;
-	private boolean exclusionZoneCalculated = false;
 	
 	/** in m/s^2 */
 	private double surfaceGravity;
-	private boolean surfaceGravityCalculated = false;
 	
 	/** Escape velocity at the equator, in m/s. Doesn't take into account the centrifugal force. */
 	private double escapeVelocity;
-	private boolean escapeVelocityCalculated = false;
 	
 	/** Speed of the surface at equator, in m/s. Important for delta-V calculations */
 	private double equatorialSpeed;
-	private boolean equatorialSpeedCalculated = false;
 	
 	/** In kg/m^3 */
 	private double density;
-	private boolean densityCalculated = false;
 	
 	/** Estimate of overall compressibility, in Pa^-1, normal range 1e-12 to 30e-12 for planets,
 	 * 20e-12 to 200e-12 for planetoids, see Material class for more examples */
@@ -133,26 +197,23 @@ public abstract class Satellite extends StellarObject {
 	/** Mass at which this planet or moon would start to accrete gas as well as dust */
 	
 	private double criticalMass;
-	private boolean criticalMassCalculated = false;
 	
 	/** In Kelvin, assuming blackbody planet (albedo = 0). Multiply by Math.pow(1 - albedo, 0.25) (Earth: 0.91) to get the "real" value */
 	private double blackbodyTemperature;
-	private boolean blackbodyTemperatureCalculated = false;
 	
 	/** Smallest molecular weight still retained by the satellite */
 	private double molecularLimit;
-	private boolean molecularLimitCalculated = false;
 	
 	private PlanetaryClass planetaryClass;
-	private boolean planetaryClassValidated = false;
+	
+	/** Bit mask of the {@link Derived} values which are up to date */
+	private int calculated = 0;
 	
 	/** Main satellite body of the system (can be this object if it's a planet) */
 	private Satellite mainBody;
-	private boolean mainBodyCalculated = false;
 
 	/** Main star of the system (TODO: Multi-star systems) */
 	private Star mainStar;
-	private boolean mainStarCalculated = false;
 	
 	protected Satellite(String name)
 	{
@@ -160,14 +221,14 @@ public abstract class Satellite extends StellarObject {
 	}
 	
 	public double blackbodyTemperature() {
-		if( !blackbodyTemperatureCalculated ) {
+		if( !calculated(Derived.BLACKBODY_TEMPERATURE) ) {
 			Star star = mainStar();
 			if( null != star ) {
 				blackbodyTemperature = mainBody().orbit.blackbodyTemp(star);
 			} else {
 				blackbodyTemperature = Constant.UNIVERSE_TEMPERATURE;
 			}
-			blackbodyTemperatureCalculated = true;
+			calculated(Derived.BLACKBODY_TEMPERATURE, true);
 		}
 		return blackbodyTemperature;
 	}
@@ -200,23 +261,23 @@ public abstract class Satellite extends StellarObject {
 	}
 	
 	public double criticalMass() {
-		if( !criticalMassCalculated ) {
+		if( !calculated(Derived.CRITICAL_MASS) ) {
 			Star star = mainStar();
 			if( null != star ) {
-				criticalMass = 1.2e-5 * Constant.SOLAR_MASS * Math.pow(mainBody().orbit.pericenter / Constant.AU * Math.sqrt(star.originalLuminosity / Constant.SOLAR_LUM), -0.75);
+				criticalMass = BodyPhysics.criticalMass(mainBody().orbit.pericenter, star.originalLuminosity);
 			} else {
 				criticalMass = 0.0;
 			}
-			criticalMassCalculated = true;
+			calculated(Derived.CRITICAL_MASS, true);
 		}
 		return criticalMass;
 	};
 	
 	public double dayLength() {
-		if( !dayLengthCalculated ) {
+		if( !calculated(Derived.DAY_LENGTH) ) {
 			if( mainBody().siderealPeriod() > 0.0 ) {
-				dayLength = (rotationPeriod / (1.0 - rotationPeriod / mainBody().siderealPeriod()));
-				dayLengthCalculated = true;
+				dayLength = BodyPhysics.dayLength(rotationPeriod, mainBody().siderealPeriod());
+				calculated(Derived.DAY_LENGTH, true);
 			} else {
 				dayLength = 0.0;
 			}
@@ -225,10 +286,10 @@ public abstract class Satellite extends StellarObject {
 	}
 	
 	public double density() {
-		if( !densityCalculated ) {
+		if( !calculated(Derived.DENSITY) ) {
 			if( mass > 0.0 && diameter > 0.0 ) {
-				density = mass * Constant.MASS_UNIT / (Math.PI * diameter * diameter * diameter / 6.0);
-				densityCalculated = true;
+				density = BodyPhysics.density(mass, diameter);
+				calculated(Derived.DENSITY, true);
 			} else {
 				density = 0.0;
 			}
@@ -238,16 +299,15 @@ public abstract class Satellite extends StellarObject {
 	
 	@Override public StellarObject diameter(double diameter) {
 		super.diameter(diameter);
-		invalidateSurfaceParameters();
-		equatorialSpeedCalculated = false;
+		invalidate(ON_DIAMETER);
 		return this;
 	}
 	
 	public double equatorialSpeed() {
-		if( !equatorialSpeedCalculated ) {
+		if( !calculated(Derived.EQUATORIAL_SPEED) ) {
 			if( rotationPeriod > 0.0 ) {
-				equatorialSpeed = Math.PI * diameter / Math.abs(rotationPeriod * Constant.TIME_UNIT);
-				equatorialSpeedCalculated = true;
+				equatorialSpeed = BodyPhysics.equatorialSpeed(diameter, rotationPeriod);
+				calculated(Derived.EQUATORIAL_SPEED, true);
 			} else {
 				equatorialSpeed = 0.0;
 			}
@@ -256,10 +316,10 @@ public abstract class Satellite extends StellarObject {
 	}
 	
 	public double escapeVelocity() {
-		if( !escapeVelocityCalculated ) {
+		if( !calculated(Derived.ESCAPE_VELOCITY) ) {
 			if( mass > 0.0 && diameter > 0.0 ) {
 				escapeVelocity = Math.sqrt(surfaceGravity() * this.diameter);
-				escapeVelocityCalculated = true;
+				calculated(Derived.ESCAPE_VELOCITY, true);
 			} else {
 				escapeVelocity = 0.0;
 			}
@@ -268,11 +328,10 @@ public abstract class Satellite extends StellarObject {
 	}
 	
 	public double exclusionZone() {
-		if( !exclusionZoneCalculated ) {
+		if( !calculated(Derived.EXCLUSION_ZONE) ) {
 			if( null != orbit && null != parent ) {
-				double hillsRadiusCircle = orbit.radius * Math.pow(mass / 3.0 / parent.mass, 1.0 / 3.0);
-				exclusionZone = hillsRadiusCircle * 5;
-				exclusionZoneCalculated = true;
+				exclusionZone = BodyPhysics.exclusionZone(mass, orbit.radius, parent.mass);
+				calculated(Derived.EXCLUSION_ZONE, true);
 			} else {
 				exclusionZone = 0.0;
 			}
@@ -286,21 +345,14 @@ public abstract class Satellite extends StellarObject {
 	 */
 	public boolean habitable()
 	{
-		return(
-				// The planet needs to retain water vapour (18.02), but not helium (4.00)
-				molecularLimit() < 18.02 && molecularLimit() > 4.00
-				// Effective temperature should be between 220 and 330 K
-				&& blackbodyTemperature() >= 220 && blackbodyTemperature() <= 330
-				// Surface gravitation should be between 0.5 and 1.5g
-				&& surfaceGravity() >= Constant.EARTH_SURFACE_GRAVITY * 0.5 && surfaceGravity() <= Constant.EARTH_SURFACE_GRAVITY * 1.5 );
+		return BodyPhysics.habitable(molecularLimit(), blackbodyTemperature(), surfaceGravity());
 	}
 	
 	public double hillsRadius() {
-		if( !hillsRadiusCalculated ) {
+		if( !calculated(Derived.HILLS_RADIUS) ) {
 			if( null != orbit && null != parent ) {
-				double hillsRadiusCircle = orbit.radius * Math.pow(mass / 3.0 / parent.mass, 1.0 / 3.0);
-				hillsRadius = ((1.0 - orbit.eccentricity) * hillsRadiusCircle);
-				hillsRadiusCalculated = true;
+				hillsRadius = BodyPhysics.hillsRadius(mass, orbit.radius, orbit.eccentricity, parent.mass);
+				calculated(Derived.HILLS_RADIUS, true);
 			} else {
 				hillsRadius = 0.0;
 			}
@@ -308,66 +360,85 @@ public abstract class Satellite extends StellarObject {
 		return hillsRadius;
 	}
 	
-	// Depends on orbital parameters and own mass
-	private void invalidateHillsRadius() {
-		hillsRadiusCalculated = false;
-		exclusionZoneCalculated = false;
+	private boolean calculated(Derived value) {
+		return (calculated & value.bit()) != 0;
+	}
+	
+	private void calculated(Derived value, boolean calculated) {
+		this.calculated = (calculated ? this.calculated | value.bit() : this.calculated & ~value.bit());
 	}
 	
-	private void invalidateOrbitalParameters() {
-		blackbodyTemperatureCalculated = false;
-		criticalMassCalculated = false;
+	/** Clear the given cached values, see {@link Derived#affectedBy} */
+	void invalidate(int values) {
+		calculated &= ~values;
 	}
 	
-	// Depends on mass and diameter
-	private void invalidateSurfaceParameters() {
-		surfaceGravityCalculated = false;
-		escapeVelocityCalculated = false;
-		densityCalculated = false;
-		molecularLimitCalculated = false;
+	/** Clear the given cached values of everything orbiting this satellite, down to the moons */
+	void invalidateSatellites(int values) {
+		List<? extends Satellite> satellites = satellites();
+		for( int i = 0; i < satellites.size(); ++ i ) {
+			satellites.get(i).invalidate(values);
+			satellites.get(i).invalidateSatellites(values);
+		}
+	}
+	
+	/** Everything orbiting this satellite directly */
+	protected List<? extends Satellite> satellites() {
+		return Collections.emptyList();
+	}
+	
+	/** Orbit changes of the main body affect its satellites' temperatures and day lengths */
+	private void orbitChanged() {
+		if( parent instanceof Satellite ) {
+			invalidate(ON_ORBIT);
+		} else {
+			invalidate(ON_MAIN_ORBIT);
+			invalidateSatellites(ON_MAIN_BODY_ORBIT);
+		}
 	}
 	
 	public Satellite mainBody() {
-		if( !mainBodyCalculated ) {
+		if( !calculated(Derived.MAIN_BODY) ) {
 			mainBody = this;
 			while( mainBody.parent instanceof Satellite ) {
 				mainBody = (Satellite)mainBody.parent;
 			}
-			mainBodyCalculated = true;
+			calculated(Derived.MAIN_BODY, true);
 		}
 		return mainBody;
 	}
 	
 	public Star mainStar() {
-		if( !mainStarCalculated ) {
+		if( !calculated(Derived.MAIN_STAR) ) {
 			if( mainBody().parent instanceof Star ) {
 				mainStar = (Star)mainBody().parent;
 			} else {
 				mainStar = null;
 			}
-			mainStarCalculated = true;
+			calculated(Derived.MAIN_STAR, true);
 		}
 		return mainStar;
 	}
 
 	@Override public StellarObject mass(double mass) {
 		super.mass(mass);
-		invalidateHillsRadius();
-		invalidateSurfaceParameters();
+		invalidate(ON_MASS);
+		invalidateSatellites(ON_PARENT_MASS);
 		return this;
 	}
 
 	public Satellite material(Material material) {
 		this.compressibility = material.compressibility;
 		this.uncompressedDensity = material.uncompressedDensity;
+		invalidate(ON_MATERIAL);
 		return this;
 	}
 	
 	public double molecularLimit() {
-		if( !molecularLimitCalculated ) {
+		if( !calculated(Derived.MOLECULAR_LIMIT) ) {
 			if( mass > 0.0 && diameter > 0.0 ) {
-				molecularLimit = 1000 * 3.0 * Constant.MOLAR_GAS * blackbodyTemperature() / Math.pow(escapeVelocity() / 9.15, 2.0);
-				molecularLimitCalculated = true;
+				molecularLimit = BodyPhysics.molecularLimit(mass, diameter, blackbodyTemperature());
+				calculated(Derived.MOLECULAR_LIMIT, true);
 			} else {
 				molecularLimit = 0.0;
 			}
@@ -377,62 +448,51 @@ public abstract class Satellite extends StellarObject {
 	
 	public Satellite orbit(@NonNull Orbit orbit) {
 		this.orbit = orbit;
-		invalidateHillsRadius();
-		invalidateOrbitalParameters();
-		molecularLimitCalculated = false;
-		siderealPeriodCalculated = false;
-		dayLengthCalculated = false;
+		orbitChanged();
 		return this;
 	}
 	
 	public Satellite orbit(@NonNull StellarObject parent, @NonNull Orbit orbit) {
 		this.parent = parent;
 		this.orbit = orbit;
-		invalidateHillsRadius();
-		invalidateOrbitalParameters();
-		molecularLimitCalculated = false;
-		siderealPeriodCalculated = false;
-		dayLengthCalculated = false;
+		invalidate(ON_PARENT);
+		invalidateSatellites(ON_ANCESTRY);
 		return this;
 	}
 	
 	public Satellite parent(@NonNull StellarObject parent) {
 		this.parent = parent;
-		invalidateHillsRadius();
-		invalidateOrbitalParameters();
-		molecularLimitCalculated = false;
-		siderealPeriodCalculated = false;
-		dayLengthCalculated = false;
+		invalidate(ON_PARENT);
+		invalidateSatellites(ON_ANCESTRY);
 		return this;
 	}
 	
 	public PlanetaryClass planetaryClass() {
-		if( !planetaryClassValidated ) {
+		if( !calculated(Derived.PLANETARY_CLASS) ) {
 			planetaryClass = (null != planetaryClass && planetaryClass.validClass(this)
 					? planetaryClass : PlanetaryClass.classify(this));
-			planetaryClassValidated = true;
+			calculated(Derived.PLANETARY_CLASS, true);
 		}
 		return planetaryClass;
 	}
 	
 	public Satellite planetaryClass(PlanetaryClass planetaryClass) {
 		this.planetaryClass = planetaryClass;
-		this.planetaryClassValidated = false;
+		invalidate(ON_PLANETARY_CLASS);
 		return this;
 	}
 
 	public Satellite rotationPeriod(double rotationPeriod) {
 		this.rotationPeriod = rotationPeriod;
-		dayLengthCalculated = false;
-		equatorialSpeedCalculated = false;
+		invalidate(ON_ROTATION);
 		return this;
 	}
 	
 	public double siderealPeriod() {
-		if( !siderealPeriodCalculated ) {
+		if( !calculated(Derived.SIDEREAL_PERIOD) ) {
 			if( null != orbit && null != parent ) {
-				siderealPeriod = Constant.TWO_PI_SQRT_INV_G * Math.sqrt(Math.pow(orbit.radius, 3) / parent.mass);
-				siderealPeriodCalculated = true;
+				siderealPeriod = BodyPhysics.siderealPeriod(orbit.radius, parent.mass);
+				calculated(Derived.SIDEREAL_PERIOD, true);
 			} else {
 				siderealPeriod = 0.0;
 			}
@@ -441,10 +501,10 @@ public abstract class Satellite extends StellarObject {
 	}
 	
 	public double surfaceGravity() {
-		if( !surfaceGravityCalculated ) {
+		if( !calculated(Derived.SURFACE_GRAVITY) ) {
 			if( mass > 0.0 && diameter > 0.0 ) {
-				surfaceGravity = Constant.G * 4 * mass / diameter / diameter * Math.pow(Constant.DISTANCE_UNIT, 3.0) / Constant.TIME_UNIT / Constant.TIME_UNIT;
-				surfaceGravityCalculated = true;
+				surfaceGravity = BodyPhysics.surfaceGravity(mass, diameter);
+				calculated(Derived.SURFACE_GRAVITY, true);
 			} else {
 				surfaceGravity = 0.0;
 			}
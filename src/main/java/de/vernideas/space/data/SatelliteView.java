@@ -0,0 +1,93 @@
+package de.vernideas.space.data;
+
+import de.vernideas.space.data.planetaryclass.PlanetaryClass;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * Immutable snapshot of a {@link Satellite}, with all the derived values calculated up front.
+ * Safe to share between threads without locking.
+ * <p>
+ * The values are the same as what the satellite's own getters return at the time of freezing.
+ */
+@ToString
+@Accessors(fluent = true)
+public abstract class SatelliteView {
+	@Getter private final String name;
+	/** In Yg */
+	@Getter private final double mass;
+	/** In m */
+	@Getter private final double diameter;
+	@Getter private final Orbit orbit;
+	/** In minutes */
+	@Getter private final double rotationPeriod;
+	@Getter private final double compressibility;
+	@Getter private final double uncompressedDensity;
+	@Getter private final PlanetaryClass planetaryClass;
+	@Getter private final double density;
+	@Getter private final double surfaceGravity;
+	@Getter private final double escapeVelocity;
+	@Getter private final double equatorialSpeed;
+	@Getter private final double molecularLimit;
+	@Getter private final double hillsRadius;
+	@Getter private final double exclusionZone;
+	@Getter private final double siderealPeriod;
+	@Getter private final double dayLength;
+	@Getter private final double blackbodyTemperature;
+	@Getter private final double criticalMass;
+	@Getter private final boolean habitable;
+
+	/** Calculates everything in one go, with the same formulas as {@link Satellite} */
+	protected SatelliteView(Satellite satellite) {
+		this.name = satellite.name;
+		this.mass = satellite.mass;
+		this.diameter = satellite.diameter;
+		this.orbit = satellite.orbit;
+		this.rotationPeriod = satellite.rotationPeriod;
+		this.compressibility = satellite.compressibility;
+		this.uncompressedDensity = satellite.uncompressedDensity;
+		this.planetaryClass = satellite.planetaryClass();
+
+		this.density = BodyPhysics.density(mass, diameter);
+		this.surfaceGravity = BodyPhysics.surfaceGravity(mass, diameter);
+		this.escapeVelocity = BodyPhysics.escapeVelocity(mass, diameter);
+		this.equatorialSpeed = BodyPhysics.equatorialSpeed(diameter, rotationPeriod);
+
+		StellarObject parent = satellite.parent;
+		if( null != orbit && null != parent ) {
+			this.hillsRadius = BodyPhysics.hillsRadius(mass, orbit.radius, orbit.eccentricity, parent.mass);
+			this.exclusionZone = BodyPhysics.exclusionZone(mass, orbit.radius, parent.mass);
+			this.siderealPeriod = siderealPeriod(satellite);
+		} else {
+			this.hillsRadius = 0.0;
+			this.exclusionZone = 0.0;
+			this.siderealPeriod = 0.0;
+		}
+
+		Satellite mainBody = satellite;
+		while( mainBody.parent instanceof Satellite ) {
+			mainBody = (Satellite)mainBody.parent;
+		}
+		Star star = (mainBody.parent instanceof Star ? (Star)mainBody.parent : null);
+		if( null != star ) {
+			this.blackbodyTemperature = mainBody.orbit.blackbodyTemp(star);
+			this.criticalMass = BodyPhysics.criticalMass(mainBody.orbit.pericenter, star.originalLuminosity);
+		} else {
+			this.blackbodyTemperature = Constant.UNIVERSE_TEMPERATURE;
+			this.criticalMass = 0.0;
+		}
+		double mainSiderealPeriod = (mainBody == satellite ? siderealPeriod : siderealPeriod(mainBody));
+		this.dayLength = BodyPhysics.dayLength(rotationPeriod, mainSiderealPeriod);
+		this.molecularLimit = BodyPhysics.molecularLimit(mass, diameter, blackbodyTemperature);
+
+		this.habitable = BodyPhysics.habitable(molecularLimit, blackbodyTemperature, surfaceGravity);
+	}
+
+	private static double siderealPeriod(Satellite satellite) {
+		if( null == satellite.orbit || null == satellite.parent ) {
+			return 0.0;
+		}
+		return BodyPhysics.siderealPeriod(satellite.orbit.radius, satellite.parent.mass);
+	}
+}
@@ -0,0 +1,65 @@
+package de.vernideas.space.data;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+import lombok.NonNull;
+
+/**
+ * Numbered tasks worked through by an executor's threads together with the calling thread.
+ */
+public final class SharedWork {
+	private SharedWork() {}
+
+	/**
+	 * Run tasks <code>0</code> to <code>tasks - 1</code> and wait for all of them. Each thread
+	 * takes the next task not started yet until none are left. If any of them fail, the first
+	 * failure gets rethrown once all are done.
+	 *
+	 * @param executor helps with the tasks; null to run all of them on the calling thread
+	 */
+	public static void run(int tasks, @NonNull IntConsumer task, Executor executor) {
+		AtomicInteger next = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(tasks);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Runnable worker = () -> {
+			int i;
+			while( (i = next.getAndIncrement()) < tasks ) {
+				try {
+					task.accept(i);
+				} catch( Throwable t ) {
+					failure.compareAndSet(null, t);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		// The calling thread works too, so this finishes even if the executor never gets around to it
+		for( int helpers = 1; null != executor && helpers < tasks; ++ helpers ) {
+			try {
+				executor.execute(worker);
+			} catch( RejectedExecutionException e ) {
+				break;
+			}
+		}
+		worker.run();
+		try {
+			done.await();
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the tasks", e);
+		}
+		Throwable t = failure.get();
+		if( t instanceof RuntimeException ) {
+			throw (RuntimeException)t;
+		} else if( t instanceof Error ) {
+			throw (Error)t;
+		} else if( null != t ) {
+			throw new IllegalStateException(t);
+		}
+	}
+}
@@ -1,8 +1,14 @@
 package de.vernideas.space.data;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Consumer;
 
+import de.vernideas.space.data.Derived.Input;
 import de.vernideas.space.data.starclass.StarClass;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -11,7 +17,7 @@ import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 
-@ToString(callSuper=true)
+@ToString(callSuper=true,exclude={"planetarySystemGenerator","generating","orbitIndex"})
 @Accessors(fluent = true)
 @EqualsAndHashCode(callSuper=true,of={"starClass","temperature"})
 public class Star extends StellarObject {
@@ -33,20 +39,153 @@ public class Star extends StellarObject {
 	@Getter protected double innerPlanetLimit;
 	@Getter protected double outerPlanetLimit;
 	@NonNull @Getter @Setter protected VectorD3D position;
+	/** Planetoids in summary form, if the generator made them that way; <code>planetoids</code> stays empty then */
+	@Getter @Setter protected Belt belt;
+	/** Builds planets and planetoids on first access; null once they exist */
+	private volatile Consumer<Star> planetarySystemGenerator;
+	/** True while the generator runs; guarded by the star's lock */
+	private boolean generating;
+	/** Orbits taken by the planets; null if it needs rebuilding */
+	private OrbitIndex orbitIndex;
 	
 	public Star(@NonNull String name, @NonNull StarClass starClass)
 	{
 		super(name);
 		this.starClass = starClass;
 		
-		this.planets = new ArrayList<Planet>();
-		this.planetoids = new ArrayList<Planet>();
+		this.planets = new SystemList();
+		this.planetoids = new SystemList();
 		
 		this.position = new VectorD3D();
 	}
 	
+	/**
+	 * Defer building the planetary system until <code>planets</code> or <code>planetoids</code>
+	 * get accessed for the first time. The generator gets called exactly once, with both lists still empty.
+	 */
+	public Star deferPlanetarySystem(@NonNull Consumer<Star> generator) {
+		this.planetarySystemGenerator = generator;
+		return this;
+	}
+	
+	/** Returns false if building the planetary system is still pending or running */
+	public boolean planetarySystemGenerated() {
+		return null == planetarySystemGenerator;
+	}
+	
+	/**
+	 * Runs the pending generator under the star's lock. Other threads wait for it to finish; the
+	 * generator itself gets through, since it fills the lists on the thread holding the lock.
+	 */
+	private void generatePlanetarySystem() {
+		if( null != planetarySystemGenerator ) {
+			synchronized( this ) {
+				Consumer<Star> generator = planetarySystemGenerator;
+				if( null != generator && !generating ) {
+					generating = true;
+					try {
+						generator.accept(this);
+					} finally {
+						generating = false;
+						// Only publish the lists once they're complete
+						planetarySystemGenerator = null;
+					}
+				}
+			}
+		}
+	}
+	
+	// Cached values of the planets, planetoids and moons to clear on changes, see Derived
+	private static final int ON_LUMINOSITY = Derived.affectedBy(Input.STAR_LUMINOSITY);
+	private static final int ON_ORIGINAL_LUMINOSITY = Derived.affectedBy(Input.STAR_ORIGINAL_LUMINOSITY);
+	private static final int ON_MASS = Derived.affectedBy(Input.PARENT_MASS, Input.MAIN_SIDEREAL_PERIOD);
+	// The star is only the parent of the planets and planetoids, not of their moons
+	private static final int ON_MASS_MOONS = Derived.affectedBy(Input.MAIN_SIDEREAL_PERIOD);
+	
+	private void invalidateSatellites(int values) {
+		invalidateSatellites(values, values);
+	}
+	
+	/**
+	 * Clear the given cached values of all planets and planetoids, and the other given ones of
+	 * their moons. Doesn't build a pending planetary system; it gets built with the current values
+	 * anyway.
+	 */
+	private void invalidateSatellites(int values, int moonValues) {
+		for( List<Planet> list : Arrays.asList(planets, planetoids) ) {
+			if( null == list ) {
+				// Still in the constructor
+				continue;
+			}
+			for( Planet planet : ((SystemList)list).list ) {
+				planet.invalidate(values);
+				planet.invalidateSatellites(moonValues);
+			}
+		}
+	}
+	
+	/** Planet list which makes sure the planetary system got built before any access */
+	private final class SystemList extends AbstractList<Planet> {
+		private final List<Planet> list = new ArrayList<Planet>();
+		
+		@Override public Planet get(int index) {
+			generatePlanetarySystem();
+			return list.get(index);
+		}
+		
+		@Override public int size() {
+			generatePlanetarySystem();
+			return list.size();
+		}
+		
+		@Override public Planet set(int index, Planet element) {
+			generatePlanetarySystem();
+			Planet result = list.set(index, element);
+			if( this == planets ) {
+				orbitsChanged();
+			}
+			return result;
+		}
+		
+		@Override public void add(int index, Planet element) {
+			generatePlanetarySystem();
+			list.add(index, element);
+			++ modCount;
+			if( this == planets && null != orbitIndex ) {
+				addToOrbitIndex(element);
+			}
+		}
+		
+		@Override public Planet remove(int index) {
+			generatePlanetarySystem();
+			Planet result = list.remove(index);
+			++ modCount;
+			if( this == planets ) {
+				orbitsChanged();
+			}
+			return result;
+		}
+		
+		// Iterators remember the modification count on creation, so make sure the lists are filled by then
+		@Override public Iterator<Planet> iterator() {
+			generatePlanetarySystem();
+			return super.iterator();
+		}
+		
+		@Override public ListIterator<Planet> listIterator(int index) {
+			generatePlanetarySystem();
+			return super.listIterator(index);
+		}
+		
+		// Printing a star doesn't build its planetary system
+		@Override public String toString() {
+			return (planetarySystemGenerated() ? super.toString() : "[pending]");
+		}
+	}
+	
 	public Star luminosity(double luminosity) {
 		this.luminosity = luminosity;
+		invalidateSatellites(ON_LUMINOSITY);
 		
 		this.boilingLine = Math.sqrt(this.luminosity / Constant.STEFAN_BOLTZMANN_PI) / (4 * 3200 * 3200);
 		// Habitable zone for Earth-like planets: from 310 K at 0.4 albedo to 220 K at 0.1 albedo
@@ -64,6 +203,7 @@ public class Star extends StellarObject {
 	
 	public Star originalLuminosity(double originalLuminosity) {
 		this.originalLuminosity = originalLuminosity;
+		invalidateSatellites(ON_ORIGINAL_LUMINOSITY);
 		
 		// Calculate the frost line by assuming a black-body with temperature of 150K (water sublimation in vacuum)
 		this.frostLine = Math.sqrt(this.originalLuminosity / Constant.STEFAN_BOLTZMANN_PI) / (4 * 150 * 150);
@@ -78,6 +218,7 @@ public class Star extends StellarObject {
 	
 	@Override public StellarObject mass(double mass) {
 		super.mass(mass);
+		invalidateSatellites(ON_MASS, ON_MASS_MOONS);
 		
 		// Empirical data
 		// Inner planet limit : either mass in solar masses times 0.1 or original luminosity in solar lums
@@ -104,22 +245,35 @@ public class Star extends StellarObject {
 		return planet;
 	}
 	
-	// Resonance distances (for gaps)
-	// Strong - 2:1, 3:1
-	private final double RESONANCE_2_1 = Math.pow(2.0, -2.0/3.0);
-	private final double RESONANCE_3_1 = Math.pow(3.0, -2.0/3.0);
-	// Medium - 4:1, 5:2, 7:3
-	private final double RESONANCE_4_1 = Math.pow(4.0, -2.0/3.0);
-	private final double RESONANCE_5_2 = Math.pow(5.0/2.0, -2.0/3.0);
-	private final double RESONANCE_7_3 = Math.pow(7.0/3.0, -2.0/3.0);
-	// Weak - 9:2, 7:2, 10:3, 8:3, 5:3, 9:4, 11:5, 11:6 (not sure if we need to bother)
+	/** Orbits taken by the planets, built from the planet list if needed */
+	private OrbitIndex orbitIndex() {
+		generatePlanetarySystem();
+		if( null == orbitIndex ) {
+			orbitIndex = new OrbitIndex();
+			for( Planet planet : ((SystemList)planets).list ) {
+				addToOrbitIndex(planet);
+			}
+		}
+		return orbitIndex;
+	}
+	
+	private void addToOrbitIndex(Planet planet) {
+		orbitIndex.add(planet);
+		planet.indexedBy(this);
+	}
+	
+	/** The orbit or exclusion zone of a planet changed, or the planet list did */
+	void orbitsChanged() {
+		orbitIndex = null;
+	}
 	
 	public boolean orbitFree(double radius, double eccentricity) {
 		return orbitFree(radius, eccentricity, 1.0);
 	}
 	
 	/**
-	 * Goes through the current planet list and checks if the orbit is "free" to house another planet.
+	 * Checks the current planet list to see if the orbit is "free" to house another planet. Takes
+	 * logarithmic time in the number of planets.
 	 */
 	public boolean orbitFree(double radius, double eccentricity, double maxOrbitMultiplier) {
 		double peri = (1.0 - eccentricity) * radius;
@@ -133,29 +287,32 @@ public class Star extends StellarObject {
 			return false;
 		}
 		
-		for(Planet p : planets) {
-			// Enforce a 0.1 AU minimum distance between planets
-			double exclusionZone = Math.max(p.exclusionZone(), Constant.AU * 0.1);
-			if( apo >= p.orbit.pericenter - exclusionZone && peri <= p.orbit.apocenter + exclusionZone ) {
-				return false;
-			}
-			// Kirkwood gaps
-			// Strong resonance gaps: 3:1 and 2:1
-			double resDist = Math.abs(p.orbit.radius * RESONANCE_2_1 - radius);
-			resDist = Math.min(resDist, Math.abs(p.orbit.radius * RESONANCE_3_1 - radius));
-			if( resDist < p.orbit.radius / 1000.0 )  {
-				return false;
-			}
-			// Weak resonance gaps
-			resDist = Math.abs(p.orbit.radius * RESONANCE_4_1 - radius);
-			resDist = Math.min(resDist, Math.abs(p.orbit.radius * RESONANCE_5_2 - radius));
-			resDist = Math.min(resDist, Math.abs(p.orbit.radius * RESONANCE_7_3 - radius));
-			if( resDist < p.orbit.radius / 5000.0 )  {
-				return false;
-			}
+		// Other planets' orbits and exclusion zones, and their Kirkwood gaps
+		return !orbitIndex().taken(radius, peri, apo);
+	}
+	
+	/**
+	 * Orbital radii {@link #orbitFree(double, double, double)} accepts for the given eccentricity,
+	 * as sorted, disjoint intervals <code>{from0, to0, from1, to1, ...}</code> in m. Always up to date
+	 * with the current planet list; the cost is linear in the number of planets.
+	 */
+	public double[] freeOrbits(double eccentricity, double maxOrbitMultiplier) {
+		double min = Math.max(innerPlanetLimit, Math.max(diameter, boilingLine) / (1.0 - eccentricity));
+		double max = outerPlanetLimit * maxOrbitMultiplier;
+		if( min > max ) {
+			return new double[0];
 		}
 		
-		return true;
+		return orbitIndex().free(min, max, eccentricity);
+	}
+	
+	/**
+	 * Immutable snapshot of the star and its planetary system, for sharing between threads. Builds
+	 * the planetary system if it's still pending. Call it from the thread which built or last changed
+	 * the star.
+	 */
+	public StarView freeze() {
+		return new StarView(this);
 	}
 	
 	public double absoluteMagnitude() {
@@ -191,4 +348,12 @@ public class Star extends StellarObject {
 	public double sternLevisonParameter(double planetMass, double orbitalRadius) {
 		return Constant.STERN_LEVISON_CONSTANT * planetMass * planetMass / Math.sqrt(Math.pow(orbitalRadius, 3)) * Math.sqrt(this.mass);
 	}
+	
+	/**
+	 * Orbital radius at which the Stern-Levison parameter for the given planet mass reaches the
+	 * given value; it's larger closer in.
+	 */
+	public double sternLevisonRadius(double planetMass, double parameter) {
+		return Math.pow(Constant.STERN_LEVISON_CONSTANT * planetMass * planetMass * Math.sqrt(this.mass) / parameter, 2.0 / 3.0);
+	}
 }
@@ -0,0 +1,70 @@
+package de.vernideas.space.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.vernideas.space.data.starclass.StarClass;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+/**
+ * Immutable snapshot of a {@link Star} with its planets, planetoids and their moons, see
+ * {@link Star#freeze()}. Safe to share between threads without locking. A {@link Belt} isn't
+ * part of it, since it builds its planetoids from the original star.
+ */
+@ToString(of = {"name", "starClass", "position"})
+@Accessors(fluent = true)
+public final class StarView {
+	@Getter private final String name;
+	@Getter private final StarClass starClass;
+	/** In Yg */
+	@Getter private final double mass;
+	/** In m */
+	@Getter private final double diameter;
+	@Getter private final VectorD3D position;
+	/** In Kelvin */
+	@Getter private final double temperature;
+	/** In W */
+	@Getter private final double luminosity;
+	@Getter private final double originalLuminosity;
+	@Getter private final double absoluteMagnitude;
+	/** Distances in m */
+	@Getter private final double boilingLine;
+	@Getter private final double frostLine;
+	@Getter private final double habitableZoneMin;
+	@Getter private final double habitableZoneMax;
+	@Getter private final double innerPlanetLimit;
+	@Getter private final double outerPlanetLimit;
+	@Getter private final List<PlanetView> planets;
+	@Getter private final List<PlanetView> planetoids;
+
+	StarView(Star star) {
+		this.name = star.name;
+		this.starClass = star.starClass;
+		this.mass = star.mass;
+		this.diameter = star.diameter;
+		this.position = star.position;
+		this.temperature = star.temperature;
+		this.luminosity = star.luminosity;
+		this.originalLuminosity = star.originalLuminosity;
+		this.absoluteMagnitude = star.absoluteMagnitude();
+		this.boilingLine = star.boilingLine;
+		this.frostLine = star.frostLine;
+		this.habitableZoneMin = star.habitableZoneMin;
+		this.habitableZoneMax = star.habitableZoneMax;
+		this.innerPlanetLimit = star.innerPlanetLimit;
+		this.outerPlanetLimit = star.outerPlanetLimit;
+		this.planets = freeze(star.planets);
+		this.planetoids = freeze(star.planetoids);
+	}
+
+	private static List<PlanetView> freeze(List<Planet> planets) {
+		List<PlanetView> result = new ArrayList<PlanetView>(planets.size());
+		for( Planet planet : planets ) {
+			result.add(planet.freeze());
+		}
+		return Collections.unmodifiableList(result);
+	}
+}
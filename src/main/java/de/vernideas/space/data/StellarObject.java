@@ -9,7 +9,7 @@ import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 
-@ToString
+@ToString(exclude="random")
 @EqualsAndHashCode(of={"name","mass","diameter"})
 @Accessors(fluent = true)
 public abstract class StellarObject {
@@ -22,14 +22,14 @@ public abstract class StellarObject {
 
 	/** Randomiser data for consistent object building */
 	@Getter private long seed;
-	@Getter private Random random;
+	/** Made on first use, see {@link #random()} */
+	private Random random;
 
 	@Getter @Setter protected Person owner;
 	
 	protected StellarObject(String name) {
 		this.name = name;
 		this.explicitName = false;
-		this.random = new Random();
 	}
 	
 	public double radius() {
@@ -38,10 +38,20 @@ public abstract class StellarObject {
 	
 	public StellarObject seed(long seed) {
 		this.seed = seed;
-		this.random.setSeed(seed);
+		if( null != this.random ) {
+			this.random.setSeed(seed);
+		}
 		return this;
 	}
 	
+	/** Randomiser for building this object; a new one starts from the seed */
+	public Random random() {
+		if( null == this.random ) {
+			this.random = new Random(seed);
+		}
+		return this.random;
+	}
+	
 	public StellarObject name(String name) {
 		this.name = name;
 		this.explicitName = true;
@@ -52,4 +62,10 @@ public abstract class StellarObject {
 		this.random = random;
 		return this;
 	}
+	
+	/** Drops the randomiser of a finished object to save memory; {@link #random()} starts over from the seed */
+	public StellarObject releaseRandom() {
+		this.random = null;
+		return this;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,310 @@
+package de.vernideas.space.data.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.VectorD3D;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.Accessors;
+
+/**
+ * Immutable "within jump range" graph of a star list, in compressed sparse row form.
+ * <p>
+ * Node <i>i</i> is the <i>i</i>-th star of the list the network got built from. Its neighbours
+ * are <code>neighbours[offsets[i]]</code> to <code>neighbours[offsets[i + 1] - 1]</code>, sorted by
+ * node number, with the matching distances in <code>distances</code>. Every edge is stored in
+ * both directions.
+ * <p>
+ * The network only consists of primitive arrays, so it's cheap to keep around and to serialise.
+ */
+@Accessors(fluent = true)
+public final class JumpNetwork implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/** Bits per axis in the packed cell key */
+	private static final int CELL_BITS = 21;
+	private static final long CELL_OFFSET = 1L << (CELL_BITS - 1);
+	private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+	/** Cells processed per fork/join leaf task */
+	private static final int BATCH_SIZE = 64;
+
+	/** Maximum jump distance used to build this network */
+	@Getter private final double jumpRange;
+	private final int[] offsets;
+	private final int[] neighbours;
+	private final float[] distances;
+
+	private JumpNetwork(double jumpRange, int[] offsets, int[] neighbours, float[] distances) {
+		this.jumpRange = jumpRange;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.distances = distances;
+	}
+
+	public int nodeCount() {
+		return offsets.length - 1;
+	}
+
+	/** Amount of directed edges (twice the amount of star pairs within jump range) */
+	public int edgeCount() {
+		return neighbours.length;
+	}
+
+	public int degree(int node) {
+		return offsets[node + 1] - offsets[node];
+	}
+
+	/** Neighbour number <code>n</code> (0 to <code>degree(node) - 1</code>) of the node */
+	public int neighbour(int node, int n) {
+		return neighbours[offsets[node] + n];
+	}
+
+	/** Distance to neighbour number <code>n</code> of the node */
+	public float distance(int node, int n) {
+		return distances[offsets[node] + n];
+	}
+
+	public boolean connected(int from, int to) {
+		return Arrays.binarySearch(neighbours, offsets[from], offsets[from + 1], to) >= 0;
+	}
+
+	/** Copy of the CSR offset array (length <code>nodeCount() + 1</code>) */
+	public int[] offsets() {
+		return offsets.clone();
+	}
+
+	/** Copy of the CSR neighbour array */
+	public int[] neighbours() {
+		return neighbours.clone();
+	}
+
+	/** Copy of the CSR distance array */
+	public float[] distances() {
+		return distances.clone();
+	}
+
+	/** Build the network on the current thread */
+	public static JumpNetwork build(@NonNull List<Star> stars, double jumpRange) {
+		return build(stars, jumpRange, null);
+	}
+
+	/**
+	 * Build the network using the supplied pool; <code>null</code> builds on the current thread.
+	 * <p>
+	 * Stars get bucketed into a grid with a cell size of the jump range, so only the 27 cells
+	 * around each star need to be checked.
+	 */
+	public static JumpNetwork build(@NonNull List<Star> stars, double jumpRange, ForkJoinPool pool) {
+		if( !(jumpRange > 0.0) ) {
+			throw new IllegalArgumentException("Illegal jump range " + jumpRange);
+		}
+		Grid grid = new Grid(stars, jumpRange);
+		int size = grid.size;
+		int[][] nodeNeighbours = new int[size][];
+		float[][] nodeDistances = new float[size][];
+
+		CellTask task = new CellTask(grid, nodeNeighbours, nodeDistances, 0, grid.cellKeys.length, null != pool);
+		if( null != pool ) {
+			pool.invoke(task);
+		} else {
+			task.compute();
+		}
+
+		int[] offsets = new int[size + 1];
+		for( int i = 0; i < size; ++ i ) {
+			offsets[i + 1] = offsets[i] + nodeNeighbours[i].length;
+		}
+		int[] neighbours = new int[offsets[size]];
+		float[] distances = new float[offsets[size]];
+		for( int i = 0; i < size; ++ i ) {
+			System.arraycopy(nodeNeighbours[i], 0, neighbours, offsets[i], nodeNeighbours[i].length);
+			System.arraycopy(nodeDistances[i], 0, distances, offsets[i], nodeDistances[i].length);
+		}
+		return new JumpNetwork(jumpRange, offsets, neighbours, distances);
+	}
+
+	private static long cellKey(long cellX, long cellY, long cellZ) {
+		return (((cellX + CELL_OFFSET) & CELL_MASK) << (2 * CELL_BITS))
+				| (((cellY + CELL_OFFSET) & CELL_MASK) << CELL_BITS)
+				| ((cellZ + CELL_OFFSET) & CELL_MASK);
+	}
+
+	/** Stars bucketed into cubic cells, sorted by cell key */
+	private static final class Grid {
+		final int size;
+		final double range;
+		final double[] x;
+		final double[] y;
+		final double[] z;
+		final long[] cellX;
+		final long[] cellY;
+		final long[] cellZ;
+		/** Sorted distinct cell keys */
+		final long[] cellKeys;
+		/** Cell c holds the stars members[cellStart[c]] to members[cellStart[c + 1] - 1] */
+		final int[] cellStart;
+		final int[] members;
+
+		Grid(List<Star> stars, double range) {
+			this.size = stars.size();
+			this.range = range;
+			x = new double[size];
+			y = new double[size];
+			z = new double[size];
+			cellX = new long[size];
+			cellY = new long[size];
+			cellZ = new long[size];
+			long[] keys = new long[size];
+			int i = 0;
+			for( Star star : stars ) {
+				VectorD3D pos = star.position();
+				x[i] = pos.x;
+				y[i] = pos.y;
+				z[i] = pos.z;
+				cellX[i] = (long)Math.floor(pos.x / range);
+				cellY[i] = (long)Math.floor(pos.y / range);
+				cellZ[i] = (long)Math.floor(pos.z / range);
+				if( Math.abs(cellX[i]) >= CELL_OFFSET || Math.abs(cellY[i]) >= CELL_OFFSET || Math.abs(cellZ[i]) >= CELL_OFFSET ) {
+					throw new IllegalArgumentException("Jump range " + range + " too small for star position " + pos);
+				}
+				keys[i] = cellKey(cellX[i], cellY[i], cellZ[i]);
+				++ i;
+			}
+
+			long[] sorted = keys.clone();
+			Arrays.sort(sorted);
+			int distinct = 0;
+			for( int k = 0; k < size; ++ k ) {
+				if( k == 0 || sorted[k] != sorted[k - 1] ) {
+					sorted[distinct ++] = sorted[k];
+				}
+			}
+			cellKeys = Arrays.copyOf(sorted, distinct);
+
+			// Counting sort of the stars into their cells, keeping the original order within each cell
+			int[] cellOf = new int[size];
+			cellStart = new int[distinct + 1];
+			for( int k = 0; k < size; ++ k ) {
+				cellOf[k] = Arrays.binarySearch(cellKeys, keys[k]);
+				++ cellStart[cellOf[k] + 1];
+			}
+			for( int c = 0; c < distinct; ++ c ) {
+				cellStart[c + 1] += cellStart[c];
+			}
+			members = new int[size];
+			int[] fill = Arrays.copyOf(cellStart, distinct);
+			for( int k = 0; k < size; ++ k ) {
+				members[fill[cellOf[k]] ++] = k;
+			}
+		}
+
+		/** Cell number of the given cell coordinates, or a negative number if empty */
+		int cell(long cx, long cy, long cz) {
+			if( Math.abs(cx) >= CELL_OFFSET || Math.abs(cy) >= CELL_OFFSET || Math.abs(cz) >= CELL_OFFSET ) {
+				return -1;
+			}
+			return Arrays.binarySearch(cellKeys, cellKey(cx, cy, cz));
+		}
+	}
+
+	private static final class CellTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Grid grid;
+		private final int[][] nodeNeighbours;
+		private final float[][] nodeDistances;
+		private final int fromCell;
+		private final int toCell;
+		private final boolean parallel;
+
+		CellTask(Grid grid, int[][] nodeNeighbours, float[][] nodeDistances, int fromCell, int toCell, boolean parallel) {
+			this.grid = grid;
+			this.nodeNeighbours = nodeNeighbours;
+			this.nodeDistances = nodeDistances;
+			this.fromCell = fromCell;
+			this.toCell = toCell;
+			this.parallel = parallel;
+		}
+
+		@Override protected void compute() {
+			if( parallel && toCell - fromCell > BATCH_SIZE ) {
+				int mid = (fromCell + toCell) >>> 1;
+				invokeAll(new CellTask(grid, nodeNeighbours, nodeDistances, fromCell, mid, parallel),
+						new CellTask(grid, nodeNeighbours, nodeDistances, mid, toCell, parallel));
+				return;
+			}
+			int[] nearCells = new int[27];
+			int[] candidates = new int[16];
+			float[] candidateDistances = new float[16];
+			long[] sortKeys = new long[16];
+			double range2 = grid.range * grid.range;
+			for( int c = fromCell; c < toCell; ++ c ) {
+				// All stars in a cell share the neighbour cells
+				int first = grid.members[grid.cellStart[c]];
+				int nearCount = 0;
+				for( long dx = -1; dx <= 1; ++ dx ) {
+					for( long dy = -1; dy <= 1; ++ dy ) {
+						for( long dz = -1; dz <= 1; ++ dz ) {
+							int near = grid.cell(grid.cellX[first] + dx, grid.cellY[first] + dy, grid.cellZ[first] + dz);
+							if( near >= 0 ) {
+								nearCells[nearCount ++] = near;
+							}
+						}
+					}
+				}
+				for( int m = grid.cellStart[c]; m < grid.cellStart[c + 1]; ++ m ) {
+					int node = grid.members[m];
+					int found = 0;
+					for( int n = 0; n < nearCount; ++ n ) {
+						int near = nearCells[n];
+						for( int o = grid.cellStart[near]; o < grid.cellStart[near + 1]; ++ o ) {
+							int other = grid.members[o];
+							if( other == node ) {
+								continue;
+							}
+							double ddx = grid.x[other] - grid.x[node];
+							double ddy = grid.y[other] - grid.y[node];
+							double ddz = grid.z[other] - grid.z[node];
+							double dist2 = ddx * ddx + ddy * ddy + ddz * ddz;
+							if( dist2 <= range2 ) {
+								if( found == candidates.length ) {
+									candidates = Arrays.copyOf(candidates, found * 2);
+									candidateDistances = Arrays.copyOf(candidateDistances, found * 2);
+								}
+								candidates[found] = other;
+								candidateDistances[found] = (float)Math.sqrt(dist2);
+								++ found;
+							}
+						}
+					}
+					if( sortKeys.length < found ) {
+						sortKeys = new long[candidates.length];
+					}
+					sortByNode(candidates, candidateDistances, sortKeys, found);
+					nodeNeighbours[node] = Arrays.copyOf(candidates, found);
+					nodeDistances[node] = Arrays.copyOf(candidateDistances, found);
+				}
+			}
+		}
+
+		/**
+		 * One primitive sort of packed keys: the node in the upper half, the distance bits in the
+		 * lower one. Nodes only show up once, so the distance never decides the order.
+		 */
+		private static void sortByNode(int[] nodes, float[] distances, long[] keys, int count) {
+			for( int i = 0; i < count; ++ i ) {
+				keys[i] = ((long)nodes[i] << 32) | (Float.floatToRawIntBits(distances[i]) & 0xFFFFFFFFL);
+			}
+			Arrays.sort(keys, 0, count);
+			for( int i = 0; i < count; ++ i ) {
+				nodes[i] = (int)(keys[i] >>> 32);
+				distances[i] = Float.intBitsToFloat((int)keys[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package de.vernideas.space.data.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.VectorD3D;
+import de.vernideas.space.data.starclass.Type;
+import lombok.NonNull;
+
+/**
+ * Immutable k-d tree over star positions.
+ * <p>
+ * The tree is implicit: stars are stored in tree order in flat arrays, the node of the range
+ * <code>[from, to)</code> sits at its middle and splits along the axis <code>depth % 3</code>.
+ * All queries take an optional set of spectral types to filter by; <code>null</code> accepts
+ * every star.
+ * <p>
+ * Instances are safe to query from multiple threads.
+ */
+public final class StarIndex {
+	/** Below this many stars, subtrees get built on the current thread */
+	private static final int PARALLEL_THRESHOLD = 8192;
+
+	private final Star[] stars;
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+	/** Spectral type ordinals, for cheap filtering */
+	private final byte[] types;
+
+	/** Build the index on the current thread */
+	public StarIndex(@NonNull Collection<Star> stars) {
+		this(stars, null);
+	}
+
+	/** Build the index using the supplied pool; <code>null</code> builds on the current thread */
+	public StarIndex(@NonNull Collection<Star> stars, ForkJoinPool pool) {
+		int size = stars.size();
+		Star[] input = stars.toArray(new Star[size]);
+		double[][] coords = new double[3][size];
+		int[] order = new int[size];
+		for( int i = 0; i < size; ++ i ) {
+			VectorD3D pos = input[i].position();
+			coords[0][i] = pos.x;
+			coords[1][i] = pos.y;
+			coords[2][i] = pos.z;
+			order[i] = i;
+		}
+
+		BuildTask task = new BuildTask(coords, order, 0, size, 0, null != pool);
+		if( null != pool ) {
+			pool.invoke(task);
+		} else {
+			task.compute();
+		}
+
+		this.stars = new Star[size];
+		this.x = new double[size];
+		this.y = new double[size];
+		this.z = new double[size];
+		this.types = new byte[size];
+		for( int i = 0; i < size; ++ i ) {
+			int source = order[i];
+			this.stars[i] = input[source];
+			this.x[i] = coords[0][source];
+			this.y[i] = coords[1][source];
+			this.z[i] = coords[2][source];
+			this.types[i] = (byte)input[source].starClass.type().ordinal();
+		}
+	}
+
+	public int size() {
+		return stars.length;
+	}
+
+	/** All stars within the given distance of the center */
+	public List<Star> withinRadius(@NonNull VectorD3D center, double radius) {
+		return withinRadius(center, radius, null);
+	}
+
+	/** All stars of the given spectral types within the given distance of the center */
+	public List<Star> withinRadius(@NonNull VectorD3D center, double radius, Set<Type> typeFilter) {
+		List<Star> result = new ArrayList<Star>();
+		if( radius >= 0.0 ) {
+			radius(center.x, center.y, center.z, radius * radius, typeMask(typeFilter), 0, stars.length, 0, result);
+		}
+		return result;
+	}
+
+	/** All stars inside the given axis-aligned box (both corners inclusive) */
+	public List<Star> withinBox(@NonNull VectorD3D min, @NonNull VectorD3D max) {
+		return withinBox(min, max, null);
+	}
+
+	/** All stars of the given spectral types inside the given axis-aligned box (both corners inclusive) */
+	public List<Star> withinBox(@NonNull VectorD3D min, @NonNull VectorD3D max, Set<Type> typeFilter) {
+		List<Star> result = new ArrayList<Star>();
+		double[] lower = {Math.min(min.x, max.x), Math.min(min.y, max.y), Math.min(min.z, max.z)};
+		double[] upper = {Math.max(min.x, max.x), Math.max(min.y, max.y), Math.max(min.z, max.z)};
+		box(lower, upper, typeMask(typeFilter), 0, stars.length, 0, result);
+		return result;
+	}
+
+	/** The (up to) k stars nearest to the center, nearest first */
+	public List<Star> nearest(@NonNull VectorD3D center, int k) {
+		return nearest(center, k, null);
+	}
+
+	/** The (up to) k stars of the given spectral types nearest to the center, nearest first */
+	public List<Star> nearest(@NonNull VectorD3D center, int k, Set<Type> typeFilter) {
+		if( k <= 0 || stars.length == 0 ) {
+			return new ArrayList<Star>(0);
+		}
+		NearestHeap heap = new NearestHeap(Math.min(k, stars.length));
+		nearest(center.x, center.y, center.z, typeMask(typeFilter), 0, stars.length, 0, heap);
+		return heap.sortedStars();
+	}
+
+	private static int typeMask(Set<Type> typeFilter) {
+		if( null == typeFilter ) {
+			return -1;
+		}
+		int mask = 0;
+		for( Type type : typeFilter ) {
+			mask |= 1 << type.ordinal();
+		}
+		return mask;
+	}
+
+	private boolean accepted(int i, int typeMask) {
+		return (typeMask & (1 << types[i])) != 0;
+	}
+
+	private double coord(int i, int axis) {
+		return axis == 0 ? x[i] : (axis == 1 ? y[i] : z[i]);
+	}
+
+	private void radius(double cx, double cy, double cz, double radius2, int typeMask, int from, int to, int depth, List<Star> result) {
+		while( from < to ) {
+			int mid = (from + to) >>> 1;
+			double dx = x[mid] - cx;
+			double dy = y[mid] - cy;
+			double dz = z[mid] - cz;
+			if( dx * dx + dy * dy + dz * dz <= radius2 && accepted(mid, typeMask) ) {
+				result.add(stars[mid]);
+			}
+			int axis = depth % 3;
+			double diff = (axis == 0 ? dx : (axis == 1 ? dy : dz));
+			++ depth;
+			// Recurse into the side the center is on, loop into the other one if it's close enough
+			if( diff > 0.0 ) {
+				radius(cx, cy, cz, radius2, typeMask, from, mid, depth, result);
+				if( diff * diff > radius2 ) { return; }
+				from = mid + 1;
+			} else {
+				radius(cx, cy, cz, radius2, typeMask, mid + 1, to, depth, result);
+				if( diff * diff > radius2 ) { return; }
+				to = mid;
+			}
+		}
+	}
+
+	private void box(double[] lower, double[] upper, int typeMask, int from, int to, int depth, List<Star> result) {
+		while( from < to ) {
+			int mid = (from + to) >>> 1;
+			if( x[mid] >= lower[0] && x[mid] <= upper[0] && y[mid] >= lower[1] && y[mid] <= upper[1]
+					&& z[mid] >= lower[2] && z[mid] <= upper[2] && accepted(mid, typeMask) ) {
+				result.add(stars[mid]);
+			}
+			int axis = depth % 3;
+			double value = coord(mid, axis);
+			++ depth;
+			boolean goLow = lower[axis] <= value;
+			boolean goHigh = upper[axis] >= value;
+			if( goLow && goHigh ) {
+				box(lower, upper, typeMask, from, mid, depth, result);
+				from = mid + 1;
+			} else if( goLow ) {
+				to = mid;
+			} else if( goHigh ) {
+				from = mid + 1;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void nearest(double cx, double cy, double cz, int typeMask, int from, int to, int depth, NearestHeap heap) {
+		if( from >= to ) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		double dx = x[mid] - cx;
+		double dy = y[mid] - cy;
+		double dz = z[mid] - cz;
+		if( accepted(mid, typeMask) ) {
+			heap.offer(dx * dx + dy * dy + dz * dz, mid);
+		}
+		int axis = depth % 3;
+		double diff = (axis == 0 ? dx : (axis == 1 ? dy : dz));
+		if( diff > 0.0 ) {
+			nearest(cx, cy, cz, typeMask, from, mid, depth + 1, heap);
+			if( diff * diff <= heap.bound() ) {
+				nearest(cx, cy, cz, typeMask, mid + 1, to, depth + 1, heap);
+			}
+		} else {
+			nearest(cx, cy, cz, typeMask, mid + 1, to, depth + 1, heap);
+			if( diff * diff <= heap.bound() ) {
+				nearest(cx, cy, cz, typeMask, from, mid, depth + 1, heap);
+			}
+		}
+	}
+
+	/** Bounded max-heap of squared distances */
+	private final class NearestHeap {
+		private final double[] dist;
+		private final int[] index;
+		private int size = 0;
+
+		NearestHeap(int capacity) {
+			this.dist = new double[capacity];
+			this.index = new int[capacity];
+		}
+
+		/** Squared distance a candidate has to beat */
+		double bound() {
+			return size < dist.length ? Double.POSITIVE_INFINITY : dist[0];
+		}
+
+		void offer(double d, int i) {
+			if( size < dist.length ) {
+				// Sift up
+				int pos = size ++;
+				while( pos > 0 ) {
+					int parent = (pos - 1) >>> 1;
+					if( dist[parent] >= d ) { break; }
+					dist[pos] = dist[parent];
+					index[pos] = index[parent];
+					pos = parent;
+				}
+				dist[pos] = d;
+				index[pos] = i;
+			} else if( d < dist[0] ) {
+				siftDown(d, i, size);
+			}
+		}
+
+		private void siftDown(double d, int i, int heapSize) {
+			int pos = 0;
+			while( true ) {
+				int child = 2 * pos + 1;
+				if( child >= heapSize ) { break; }
+				if( child + 1 < heapSize && dist[child + 1] > dist[child] ) { ++ child; }
+				if( dist[child] <= d ) { break; }
+				dist[pos] = dist[child];
+				index[pos] = index[child];
+				pos = child;
+			}
+			dist[pos] = d;
+			index[pos] = i;
+		}
+
+		/** Empties the heap */
+		List<Star> sortedStars() {
+			Star[] result = new Star[size];
+			for( int last = size - 1; last >= 0; -- last ) {
+				result[last] = stars[index[0]];
+				siftDown(dist[last], index[last], last);
+			}
+			size = 0;
+			List<Star> list = new ArrayList<Star>(result.length);
+			for( Star star : result ) {
+				list.add(star);
+			}
+			return list;
+		}
+	}
+
+	/** Reorders <code>order</code> into implicit k-d tree order */
+	private static final class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final double[][] coords;
+		private final int[] order;
+		private final int from;
+		private final int to;
+		private final int depth;
+		private final boolean parallel;
+
+		BuildTask(double[][] coords, int[] order, int from, int to, int depth, boolean parallel) {
+			this.coords = coords;
+			this.order = order;
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+			this.parallel = parallel;
+		}
+
+		@Override protected void compute() {
+			if( to - from <= 1 ) {
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			select(coords[depth % 3], order, from, to - 1, mid);
+			BuildTask low = new BuildTask(coords, order, from, mid, depth + 1, parallel);
+			BuildTask high = new BuildTask(coords, order, mid + 1, to, depth + 1, parallel);
+			if( parallel && to - from > PARALLEL_THRESHOLD ) {
+				invokeAll(low, high);
+			} else {
+				low.compute();
+				high.compute();
+			}
+		}
+
+		/** Quickselect: put the k-th smallest element (by value) at position k */
+		private static void select(double[] values, int[] order, int left, int right, int k) {
+			while( right > left ) {
+				// Median of three as pivot
+				int middle = (left + right) >>> 1;
+				if( values[order[middle]] < values[order[left]] ) { swap(order, left, middle); }
+				if( values[order[right]] < values[order[left]] ) { swap(order, left, right); }
+				if( values[order[right]] < values[order[middle]] ) { swap(order, middle, right); }
+				double pivot = values[order[middle]];
+				int i = left;
+				int j = right;
+				while( i <= j ) {
+					while( values[order[i]] < pivot ) { ++ i; }
+					while( values[order[j]] > pivot ) { -- j; }
+					if( i <= j ) {
+						swap(order, i, j);
+						++ i;
+						-- j;
+					}
+				}
+				if( k <= j ) {
+					right = j;
+				} else if( k >= i ) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+
+		private static void swap(int[] order, int i, int j) {
+			int tmp = order[i];
+			order[i] = order[j];
+			order[j] = tmp;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package de.vernideas.space.data.planetaryclass;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -7,6 +9,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.function.Predicate;
 
+import de.vernideas.lib.stellargen.sampler.Truncated;
 import de.vernideas.space.data.Constant;
 import de.vernideas.space.data.Material;
 import de.vernideas.space.data.Orbit;
@@ -14,6 +17,8 @@ import de.vernideas.space.data.OrbitalZone;
 import de.vernideas.space.data.Satellite;
 import de.vernideas.space.data.Star;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
 import lombok.ToString;
 import lombok.experimental.Accessors;
 
@@ -359,8 +364,8 @@ public class PlanetaryClass {
 	}
 	
 	// Temperature limits
-	private double minTemperature = 0.0;
-	private double maxTemperature = Double.MAX_VALUE;
+	@Getter private double minTemperature = 0.0;
+	@Getter private double maxTemperature = Double.MAX_VALUE;
 	
 	public PlanetaryClass temperatureLimits(double temp1, double temp2) {
 		minTemperature = Math.min(temp1, temp2);
@@ -454,9 +459,22 @@ public class PlanetaryClass {
 	
 	/** Get a random material for the given planet class */
 	public Material newMaterial(Random rnd, double blackbodyTemperature) {
-		double density = rnd.nextGaussian() * sigmaDensity + avgDensity;
-		while( density < minDensity || density > maxDensity ) {
+		return newMaterial(rnd, blackbodyTemperature, false);
+	}
+	
+	/**
+	 * Get a random material for the given planet class, drawn the way older versions did if
+	 * <code>legacy</code> is true, see {@link de.vernideas.lib.stellargen.GenerationOptions#legacy()}
+	 */
+	public Material newMaterial(Random rnd, double blackbodyTemperature, boolean legacy) {
+		double density;
+		if( legacy ) {
 			density = rnd.nextGaussian() * sigmaDensity + avgDensity;
+			while( density < minDensity || density > maxDensity ) {
+				density = rnd.nextGaussian() * sigmaDensity + avgDensity;
+			}
+		} else {
+			density = Truncated.normal(rnd, avgDensity, sigmaDensity, minDensity, maxDensity);
 		}
 		double compressibility = between(minCompressibility, maxCompressibility,
 				Math.pow(rnd.nextDouble(), compressibilityScale)) * Math.pow(density, compressibilityDensityScale);
@@ -464,6 +482,19 @@ public class PlanetaryClass {
 	}
 	
 
+	/** One of the predefined classes by its constant name, like <code>"GAS_GIANT_I"</code> */
+	public static PlanetaryClass forName(@NonNull String constant) {
+		try {
+			Field field = PlanetaryClass.class.getField(constant);
+			if( Modifier.isStatic(field.getModifiers()) && PlanetaryClass.class.isAssignableFrom(field.getType()) ) {
+				return (PlanetaryClass)field.get(null);
+			}
+		} catch( NoSuchFieldException | IllegalAccessException e ) {
+			// Not a predefined class
+		}
+		throw new IllegalArgumentException("Unknown planetary class: " + constant);
+	}
+	
 	/* public abstract Map<Gas, Integer> atmosphere(Orbit orbit, SpectralClass sc, int temperature, long seed); */
 	
 	public static PlanetaryClass classify(Satellite planet)
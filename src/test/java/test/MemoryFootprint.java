@@ -0,0 +1,185 @@
+package test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import de.vernideas.lib.stellargen.GenerationOptions;
+import de.vernideas.lib.stellargen.SystemGenerator;
+import de.vernideas.space.data.Moon;
+import de.vernideas.space.data.Planet;
+import de.vernideas.space.data.Star;
+import de.vernideas.space.data.StellarObject;
+import de.vernideas.space.data.Universe;
+
+/**
+ * Memory footprint report: average retained bytes per star, planet and moon, for sizing caches of
+ * generated systems. Each body counts its own fields and whatever only it refers to (name, orbit,
+ * randomiser, lists); other bodies and shared constants (classes, materials, enums) don't count.
+ * <p>
+ * Sizes assume a 64 bit HotSpot VM with compressed references (12 byte object headers, 4 byte
+ * references, 8 byte alignment), the default for heaps below 32 GB. The heap growth of holding
+ * all the systems gets printed as a cross-check.
+ * <p>
+ * Arguments: number of systems (default 2000), "lean" for {@link GenerationOptions#withLean(boolean)},
+ * "belts" for {@link GenerationOptions#withBelts(boolean)}.
+ */
+public final class MemoryFootprint {
+	private static final int HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+	private static final int ALIGNMENT = 8;
+
+	private final Map<Object, Boolean> seen = new IdentityHashMap<Object, Boolean>();
+	private final Map<Class<?>, List<Field>> fields = new IdentityHashMap<Class<?>, List<Field>>();
+
+	public static void main(String[] args) throws Exception {
+		int systems = 2000;
+		GenerationOptions options = GenerationOptions.DEFAULT;
+		for( String arg : args ) {
+			if( "lean".equals(arg) ) {
+				options = options.withLean(true);
+			} else if( "belts".equals(arg) ) {
+				options = options.withBelts(true);
+			} else {
+				systems = Integer.parseInt(arg);
+			}
+		}
+
+		long before = usedMemory();
+		Universe u = new Universe(4711L);
+		List<Star> stars = new ArrayList<Star>(systems);
+		for( int i = 0; i < systems; ++ i ) {
+			Star star = SystemGenerator.star(u, null, options);
+			star.planets.size();
+			stars.add(star);
+		}
+		long heap = usedMemory() - before;
+
+		MemoryFootprint footprint = new MemoryFootprint();
+		long starBytes = 0, planetBytes = 0, moonBytes = 0;
+		int planets = 0, moons = 0;
+		for( Star star : stars ) {
+			starBytes += footprint.sizeOf(star);
+			List<Planet> bodies = new ArrayList<Planet>(star.planets);
+			bodies.addAll(star.planetoids);
+			for( Planet planet : bodies ) {
+				planetBytes += footprint.sizeOf(planet);
+				++ planets;
+				for( Moon moon : planet.moons ) {
+					moonBytes += footprint.sizeOf(moon);
+					++ moons;
+				}
+			}
+		}
+
+		System.out.println(String.format(Locale.ROOT, "%d stars, %d planets and planetoids, %d moons",
+				stars.size(), planets, moons));
+		System.out.println(String.format(Locale.ROOT, "Star   %6.0f bytes", (double)starBytes / stars.size()));
+		System.out.println(String.format(Locale.ROOT, "Planet %6.0f bytes", (double)planetBytes / Math.max(planets, 1)));
+		System.out.println(String.format(Locale.ROOT, "Moon   %6.0f bytes", (double)moonBytes / Math.max(moons, 1)));
+		System.out.println(String.format(Locale.ROOT, "System %6.0f bytes (heap growth %.0f bytes)",
+				(double)(starBytes + planetBytes + moonBytes) / stars.size(), (double)heap / stars.size()));
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for( int i = 0; i < 4; ++ i ) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/** Bytes of the body and everything only it refers to */
+	private long sizeOf(StellarObject body) throws IllegalAccessException {
+		long size = 0;
+		Deque<Object> open = new ArrayDeque<Object>();
+		open.push(body);
+		seen.put(body, Boolean.TRUE);
+		while( !open.isEmpty() ) {
+			Object object = open.pop();
+			Class<?> type = object.getClass();
+			if( type.isArray() ) {
+				Class<?> component = type.getComponentType();
+				int length = Array.getLength(object);
+				size += align(ARRAY_HEADER + (long)length * primitiveSize(component));
+				if( !component.isPrimitive() ) {
+					for( int i = 0; i < length; ++ i ) {
+						follow(Array.get(object, i), open);
+					}
+				}
+			} else {
+				long shallow = HEADER;
+				for( Field field : fields(type) ) {
+					shallow += primitiveSize(field.getType());
+					if( !field.getType().isPrimitive() ) {
+						follow(field.get(object), open);
+					}
+				}
+				size += align(shallow);
+			}
+		}
+		return size;
+	}
+
+	private void follow(Object object, Deque<Object> open) {
+		if( null == object || seen.containsKey(object) || shared(object.getClass()) ) {
+			return;
+		}
+		seen.put(object, Boolean.TRUE);
+		open.push(object);
+	}
+
+	/** Other bodies, and data shared between them */
+	private static boolean shared(Class<?> type) {
+		return StellarObject.class.isAssignableFrom(type) || type.isEnum() || type == Class.class
+				|| type.getName().startsWith("de.vernideas.space.data.planetaryclass.")
+				|| type.getName().startsWith("de.vernideas.space.data.starclass.")
+				|| type.getName().contains("$$Lambda$");
+	}
+
+	private List<Field> fields(Class<?> type) {
+		List<Field> result = fields.get(type);
+		if( null == result ) {
+			result = new ArrayList<Field>();
+			for( Class<?> c = type; null != c; c = c.getSuperclass() ) {
+				for( Field field : c.getDeclaredFields() ) {
+					if( !Modifier.isStatic(field.getModifiers()) ) {
+						field.setAccessible(true);
+						result.add(field);
+					}
+				}
+			}
+			fields.put(type, result);
+		}
+		return result;
+	}
+
+	private static int primitiveSize(Class<?> type) {
+		if( type == long.class || type == double.class ) {
+			return 8;
+		}
+		if( type == int.class || type == float.class ) {
+			return 4;
+		}
+		if( type == short.class || type == char.class ) {
+			return 2;
+		}
+		if( type == byte.class || type == boolean.class ) {
+			return 1;
+		}
+		return REFERENCE;
+	}
+
+	private static long align(long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+}